@@ -0,0 +1,83 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of realistic positions for the benchmarks to work through, chosen by phase, along with the squares of the
+ * pieces of the side to move and one legal move in each position.
+ */
+@State(Scope.Thread)
+public class Corpus {
+
+    private static final Map<String, List<String>> POSITIONS = Map.of(
+            "middlegame", List.of(
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    "r1bq1rk1/2p1bppp/p1np1n2/1p2p3/4P3/1BP2N1P/PP1P1PP1/RNBQR1K1 b - - 0 9",
+                    "rnbqkb1r/1p2pppp/p2p1n2/8/3NP3/2N5/PPP2PPP/R1BQKB1R w KQkq - 0 6",
+                    "r1bq1rk1/pppnbppp/4pn2/3p2B1/2PP4/2N1PN2/PP3PPP/R2QKB1R w KQ - 3 7",
+                    "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+            ),
+            "endgame", List.of(
+                    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    "1K1k4/1P6/8/8/8/8/r7/2R5 w - - 0 1",
+                    "4k3/8/8/3KP3/8/8/r7/7R b - - 0 1",
+                    "8/8/8/4k3/8/8/3qK3/7R w - - 0 1",
+                    "8/pp3k2/2p5/3p1p2/3P1P2/2P5/PP3K2/8 w - - 0 1",
+                    "8/5pk1/6p1/3B4/8/1b3PK1/5P2/8 w - - 0 40"
+            )
+    );
+
+    @Param({"middlegame", "endgame"})
+    public String phase;
+
+    public List<ChessGame> games;
+    /**
+     * For each game, the positions of the pieces whose turn it is.
+     */
+    public List<List<ChessPosition>> pieces;
+    /**
+     * For each game, a legal move for the side to move.
+     */
+    public List<ChessMove> moves;
+
+    @Setup(Level.Trial)
+    public void load() {
+        games = fresh();
+        pieces = new ArrayList<>();
+        moves = new ArrayList<>();
+        for (var game : games) {
+            List<ChessPosition> own = new ArrayList<>();
+            for (int row = 1; row <= 8; row++) {
+                for (int column = 1; column <= 8; column++) {
+                    ChessPosition position = ChessPosition.of(row, column);
+                    ChessPiece piece = game.getBoard().getPiece(position);
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                        own.add(position);
+                    }
+                }
+            }
+            pieces.add(own);
+            moves.add(own.stream().flatMap(position -> game.validMoves(position).stream()).findFirst().orElseThrow());
+        }
+    }
+
+    /**
+     * @return new games in this phase's positions, for benchmarks that change the games they are given
+     */
+    public List<ChessGame> fresh() {
+        return POSITIONS.get(phase).stream().map(ChessGame::fromFen).toList();
+    }
+}
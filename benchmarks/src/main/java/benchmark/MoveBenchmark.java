@@ -0,0 +1,91 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation and game rules over every position in a {@link Corpus}; each operation covers the whole corpus.
+ * Run with {@code -prof gc} to see allocation per operation alongside the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveBenchmark {
+
+    /**
+     * Games that makeMove may change, replaced before every call.
+     */
+    @State(Scope.Thread)
+    public static class FreshGames {
+        List<ChessGame> games;
+
+        @Setup(Level.Invocation)
+        public void load(Corpus corpus) {
+            games = corpus.fresh();
+        }
+    }
+
+    @Benchmark
+    public void pieceMoves(Corpus corpus, Blackhole blackhole) {
+        for (int i = 0; i < corpus.games.size(); i++) {
+            ChessBoard board = corpus.games.get(i).getBoard();
+            for (ChessPosition position : corpus.pieces.get(i)) {
+                ChessPiece piece = board.getPiece(position);
+                blackhole.consume(piece.pieceMoves(board, position));
+            }
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Corpus corpus, Blackhole blackhole) {
+        for (int i = 0; i < corpus.games.size(); i++) {
+            ChessGame game = corpus.games.get(i);
+            for (ChessPosition position : corpus.pieces.get(i)) {
+                blackhole.consume(game.validMoves(position));
+            }
+        }
+    }
+
+    @Benchmark
+    public void teamMoves(Corpus corpus, Blackhole blackhole) {
+        for (ChessGame game : corpus.games) {
+            blackhole.consume(game.getBoard().getTeamMoves(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public void isInCheckmate(Corpus corpus, Blackhole blackhole) {
+        for (ChessGame game : corpus.games) {
+            blackhole.consume(game.isInCheckmate(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public void makeMove(Corpus corpus, FreshGames fresh, Blackhole blackhole) throws InvalidMoveException {
+        for (int i = 0; i < fresh.games.size(); i++) {
+            ChessGame game = fresh.games.get(i);
+            game.makeMove(corpus.moves.get(i));
+            blackhole.consume(game.getStatus());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import chess.ChessBinary;
+import chess.ChessGame;
+import chess.ChessJson;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of every game in a {@link Corpus}, the way the server stores games and sends them to clients: as JSON with
+ * {@link ChessJson#GSON} and with plain reflective Gson for comparison, and in {@link ChessBinary}'s binary format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+
+    private static final Gson REFLECTIVE = new Gson();
+
+    @Benchmark
+    public void toJson(Corpus corpus, Blackhole blackhole) {
+        for (ChessGame game : corpus.games) {
+            blackhole.consume(ChessJson.GSON.toJson(game));
+        }
+    }
+
+    @Benchmark
+    public void roundTrip(Corpus corpus, Blackhole blackhole) {
+        for (ChessGame game : corpus.games) {
+            blackhole.consume(ChessJson.GSON.fromJson(ChessJson.GSON.toJson(game), ChessGame.class));
+        }
+    }
+
+    @Benchmark
+    public void reflectiveToJson(Corpus corpus, Blackhole blackhole) {
+        for (ChessGame game : corpus.games) {
+            blackhole.consume(REFLECTIVE.toJson(game));
+        }
+    }
+
+    @Benchmark
+    public void reflectiveRoundTrip(Corpus corpus, Blackhole blackhole) {
+        for (ChessGame game : corpus.games) {
+            blackhole.consume(REFLECTIVE.fromJson(REFLECTIVE.toJson(game), ChessGame.class));
+        }
+    }
+
+    @Benchmark
+    public void binaryRoundTrip(Corpus corpus, Blackhole blackhole) {
+        ByteBuffer buffer = ByteBuffer.allocate(ChessBinary.MAX_SIZE);
+        for (ChessGame game : corpus.games) {
+            ChessBinary.encode(game, buffer.clear());
+            blackhole.consume(ChessBinary.decode(buffer.flip()));
+        }
+    }
+}
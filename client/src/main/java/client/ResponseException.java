@@ -1,6 +1,6 @@
 package client;
 
-import com.google.gson.Gson;
+import chess.ChessJson;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -18,7 +18,7 @@ public class ResponseException extends Exception {
     }
 
     public static ResponseException fromJson(int code, InputStream stream) {
-        var map = new Gson().fromJson(new InputStreamReader(stream), HashMap.class);
+        var map = ChessJson.GSON.fromJson(new InputStreamReader(stream), HashMap.class);
         String message = map.get("message").toString();
         return new ResponseException(code, message);
     }
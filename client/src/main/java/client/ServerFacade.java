@@ -1,10 +1,12 @@
 package client;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessJson;
 import com.google.gson.reflect.TypeToken;
 import model.AuthData;
-import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
 
 import javax.websocket.MessageHandler;
@@ -15,8 +17,12 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ServerFacade {
@@ -57,10 +63,36 @@ public class ServerFacade {
                 null);
     }
 
-    public Collection<GameData> listGames(String authToken) throws ResponseException {
-        String path = "/game";
-        TypeToken<HashMap<String, Collection<GameData>>> type = new TypeToken<>(){};
-        return makeRequestTypeToken(GET, path, authToken, null, type).get("games");
+    /**
+     * Lists every game, a page at a time.
+     */
+    public Collection<GameSummary> listGames(String authToken) throws ResponseException {
+        List<GameSummary> games = new ArrayList<>();
+        GamePage page = listGames(authToken, GameQuery.all());
+        games.addAll(page.games());
+        while (page.next() != null) {
+            page = listGames(authToken, GameQuery.all().after(page.next()));
+            games.addAll(page.games());
+        }
+        return games;
+    }
+
+    public GamePage listGames(String authToken, GameQuery query) throws ResponseException {
+        StringBuilder path = new StringBuilder("/game?after=").append(query.after()).append("&limit=")
+                .append(query.limit());
+        if (query.openSeat()) {
+            path.append("&open=true");
+        }
+        if (query.player() != null) {
+            path.append("&player=").append(URLEncoder.encode(query.player(), StandardCharsets.UTF_8));
+        }
+        if (query.progress() != null) {
+            path.append("&status=").append(query.progress().name().toLowerCase());
+        }
+        if (query.namePrefix() != null) {
+            path.append("&name=").append(URLEncoder.encode(query.namePrefix(), StandardCharsets.UTF_8));
+        }
+        return makeRequest(GET, path.toString(), authToken, null, GamePage.class);
     }
 
     private <T> T makeRequest(String method, String path, String auth, Object request, Class<T> responseClass)
@@ -94,7 +126,7 @@ public class ServerFacade {
     private static void writeBody(Object request, HttpURLConnection http) throws IOException {
         if (request != null) {
             http.addRequestProperty("Content-Type", "application/json");
-            String reqData = new Gson().toJson(request);
+            String reqData = ChessJson.GSON.toJson(request);
             try (OutputStream reqBody = http.getOutputStream()) {
                 reqBody.write(reqData.getBytes());
             }
@@ -120,7 +152,7 @@ public class ServerFacade {
             try (InputStream respBody = http.getInputStream()) {
                 InputStreamReader reader = new InputStreamReader(respBody);
                 if (responseClass != null) {
-                    response = new Gson().fromJson(reader, responseClass);
+                    response = ChessJson.GSON.fromJson(reader, responseClass);
                 }
             }
         }
@@ -1,7 +1,7 @@
 package client;
 
+import chess.ChessJson;
 import chess.ChessMove;
-import com.google.gson.Gson;
 import websocket.commands.UserGameCommand;
 
 import javax.websocket.*;
@@ -25,7 +25,7 @@ public class WebSocketFacade extends Endpoint {
     }
 
     public void connectToGame(String authToken, int gameID) throws IOException {
-        sendCommand(new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID, null));
+        sendCommand(new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID, null, true));
     }
 
     public void leaveGame(String authToken, int gameID) throws IOException {
@@ -40,7 +40,11 @@ public class WebSocketFacade extends Endpoint {
         sendCommand(new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, gameID, null));
     }
 
+    public void reloadGame(String authToken, int gameID) throws IOException {
+        sendCommand(new UserGameCommand(UserGameCommand.CommandType.RELOAD, authToken, gameID, null));
+    }
+
     public void sendCommand(UserGameCommand command) throws IOException {
-        session.getBasicRemote().sendText(new Gson().toJson(command));
+        session.getBasicRemote().sendText(ChessJson.GSON.toJson(command));
     }
 }
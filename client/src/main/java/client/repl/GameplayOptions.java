@@ -1,11 +1,12 @@
 package client.repl;
 
 import chess.ChessGame;
+import chess.ChessJson;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
 
-import com.google.gson.Gson;
 
 import websocket.messages.ServerMessage;
 import javax.websocket.MessageHandler;
@@ -27,18 +28,41 @@ public class GameplayOptions extends ChessMenuOptions implements MessageHandler.
     }
 
     public void onMessage(String message){
-        ServerMessage received = new Gson().fromJson(message, ServerMessage.class);
+        ServerMessage received = ChessJson.GSON.fromJson(message, ServerMessage.class);
         switch(received.serverMessageType()) {
             case NOTIFICATION -> out.println(SET_TEXT_COLOR_GREEN + received.message() + RESET_TEXT_COLOR);
             case LOAD_GAME -> {
-                currentGame = new Gson().fromJson(received.game(), ChessGame.class);
+                currentGame = ChessJson.GSON.fromJson(received.game(), ChessGame.class);
                 drawBoard(out, null);
             }
+            case MOVE_MADE -> applyMove(received);
             case ERROR -> out.println(SET_TEXT_COLOR_RED + received.errorMessage() + RESET_TEXT_COLOR);
         }
         out.print(prompt);
     }
 
+    /**
+     * Makes the server's move in our copy of the game, or asks for the whole game if our copy doesn't end up where the
+     * server's did.
+     */
+    private void applyMove(ServerMessage received){
+        if(currentGame != null && currentGame.getPlyCount() + 1 == received.sequence()){
+            try {
+                currentGame.makeMove(received.move());
+                if(ServerMessage.positionHash(currentGame).equals(received.positionHash())){
+                    drawBoard(out, null);
+                    return;
+                }
+            } catch (InvalidMoveException ignored) {
+            }
+        }
+        try {
+            socket.reloadGame(authToken, currentGameID);
+        } catch (IOException e) {
+            out.println(SET_TEXT_COLOR_RED + "Sorry, the board could not be updated." + RESET_TEXT_COLOR);
+        }
+    }
+
     public static void redrawBoard(Scanner in, PrintStream out){
         drawBoard(out, null);
     }
@@ -161,7 +185,7 @@ public class GameplayOptions extends ChessMenuOptions implements MessageHandler.
         if(row == null || col == null){
             return null;
         }
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
     private static ChessPiece.PieceType getPromotionPiece(Scanner in, PrintStream out){
@@ -253,10 +277,10 @@ public class GameplayOptions extends ChessMenuOptions implements MessageHandler.
                 if((i + j) % 2 == 0){
                     squareColor = WHITE_SQUARE_COLOR; // Light square
                 }
-                if(toHighlight.contains(new ChessPosition(i, j))){ //Highlighted square
+                if(toHighlight.contains(ChessPosition.of(i, j))){ //Highlighted square
                     squareColor = HIGHLIGHT_SQUARE_COLOR;
                 }
-                out[i][j] = getSquareStrings(squareColor, currentGame.getBoard().getPiece(new ChessPosition(i, j)));
+                out[i][j] = getSquareStrings(squareColor, currentGame.getBoard().getPiece(ChessPosition.of(i, j)));
             }
         }
         return out;
@@ -1,7 +1,7 @@
 package client.repl;
 
 import chess.ChessGame;
-import model.GameData;
+import model.GameSummary;
 import client.ResponseException;
 
 import java.io.IOException;
@@ -15,7 +15,7 @@ import static java.lang.Integer.max;
 
 public class PostLoginOptions extends ChessMenuOptions {
     private static final String TAKEN = "is already playing as that color in that game.";
-    private static GameData[] gamesLastRetrieval = new GameData[0];
+    private static GameSummary[] gamesLastRetrieval = new GameSummary[0];
 
     public static void logout(Scanner in, PrintStream out){
         try {
@@ -43,8 +43,8 @@ public class PostLoginOptions extends ChessMenuOptions {
 
     public static void listGames(Scanner in, PrintStream out){
         try {
-            Collection<GameData> games = facade.listGames(authToken);
-            gamesLastRetrieval = games.toArray(GameData[]::new);
+            Collection<GameSummary> games = facade.listGames(authToken);
+            gamesLastRetrieval = games.toArray(GameSummary[]::new);
             final String columnDiv = "  " + TABLE_VL + "  ";
             final String prefix = "      " + TABLE_VL;
             final String idHeader = "  Game ID:";
@@ -72,7 +72,7 @@ public class PostLoginOptions extends ChessMenuOptions {
             pieces[0][2] = padTo(longestWhite, whiteHeader);
             pieces[0][3] = padTo(longestBlack, blackHeader);
             for(int i = 0; i < gamesLastRetrieval.length;){
-                GameData game = gamesLastRetrieval[i];
+                GameSummary game = gamesLastRetrieval[i];
                 i++;
                 pieces[i][0] = (padTo(idColumnWidth, ""+i));
 
@@ -120,7 +120,7 @@ public class PostLoginOptions extends ChessMenuOptions {
             return;
         }
 
-        GameData game = getAndConfirmGame(in, out, true);
+        GameSummary game = getAndConfirmGame(in, out, true);
         if(game == null){
             exitMessage(out);
             throw new RuntimeException();
@@ -139,7 +139,7 @@ public class PostLoginOptions extends ChessMenuOptions {
             })){
                 facade.playGame(authToken, color, game.gameID());
             }
-            currentGame = game.game();
+            currentGame = null;
             perspective = color;
             currentGameID = game.gameID();
 
@@ -157,7 +157,7 @@ public class PostLoginOptions extends ChessMenuOptions {
         if (rejoinOldGame(in, out)) {
             return;
         }
-        GameData game = getAndConfirmGame(in, out, false);
+        GameSummary game = getAndConfirmGame(in, out, false);
         if(game == null){
             exitMessage(out);
             return;
@@ -169,7 +169,7 @@ public class PostLoginOptions extends ChessMenuOptions {
         }
         out.println(SET_TEXT_COLOR_BLUE + "Attempting to observe game " + game.gameName() + "...." );
         try{
-            currentGame = game.game();
+            currentGame = null;
             perspective = color;
             currentGameID = game.gameID();
 
@@ -205,7 +205,7 @@ public class PostLoginOptions extends ChessMenuOptions {
         return false;
     }
 
-    private static void setUpSocket(PrintStream out, GameData game) throws Exception {
+    private static void setUpSocket(PrintStream out, GameSummary game) throws Exception {
         socket = facade.upgradeConnection(new GameplayOptions(out));
         socket.connectToGame(authToken, game.gameID());
     }
@@ -222,7 +222,7 @@ public class PostLoginOptions extends ChessMenuOptions {
         };
     }
 
-    private static GameData getAndConfirmGame(Scanner in, PrintStream out, boolean play){
+    private static GameSummary getAndConfirmGame(Scanner in, PrintStream out, boolean play){
         if(gamesLastRetrieval.length == 0){
             listGames(in, out);
         }
@@ -231,7 +231,7 @@ public class PostLoginOptions extends ChessMenuOptions {
         if(gameID == -1){
             return null;
         }
-        GameData game = gamesLastRetrieval[gameID-1];
+        GameSummary game = gamesLastRetrieval[gameID-1];
         String name = game.gameName();
         String white = game.whiteUsername();
         String black = game.blackUsername();
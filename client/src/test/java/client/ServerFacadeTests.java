@@ -4,6 +4,7 @@ import chess.ChessGame;
 import dataaccess.DataAccessException;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
 import org.junit.jupiter.api.*;
 import server.Server;
@@ -175,12 +176,12 @@ public class ServerFacadeTests {
             for(String name:gameNames){
                 facade.createGame(token, name);
             }
-            Collection<GameData> gameList = facade.listGames(token);
+            Collection<GameSummary> gameList = facade.listGames(token);
             assert gameList != null;
             assert gameList.size() == gameNames.length;
             for(String name:gameNames){
                 boolean found = false;
-                for(GameData game:gameList){
+                for(GameSummary game:gameList){
                     if (game.gameName().equals(name)) {
                         found = true;
                         break;
@@ -0,0 +1,375 @@
+package dataaccess;
+
+import chess.ChessBinary;
+import chess.ChessGame;
+import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static server.WebException.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps recently used games in memory in front of another GameDAO, and writes game updates to it in the background.
+ * Reads of a cached game never reach the database, and a game updated many times between flushes is only written
+ * once, with its latest state; all the games waiting are written together by {@link GameDAO#updateGames}.
+ * <p>
+ * At most a fixed number of games are cached, the least recently used being dropped first, and games unused for a
+ * while are dropped too. Dropping a game never loses an update still waiting to be written. How soon updates reach the
+ * database is set by the {@link Durability}. With the constructor that takes only the other DAO, the settings come
+ * from db.properties: {@code db.cache.durability} ({@code write_through}, {@code game_end}, the default, or
+ * {@code interval}), {@code db.cache.flushMillis} (default 1000), {@code db.cache.size} (default 1000) and
+ * {@code db.cache.idleMillis} (default 600000).
+ * <p>
+ * Only one caller should change a given game at a time, as the server's game actors ensure. Writes happen one batch at
+ * a time, so an older state of a game can never be written over a newer one.
+ */
+public class CachingGameDAO implements GameDAO {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingGameDAO.class);
+
+    public enum Durability {
+        /**
+         * Every update is written before updateGame returns, as without the cache.
+         */
+        WRITE_THROUGH,
+        /**
+         * Updates are written every flush interval, except that an update which ends the game is written at once.
+         */
+        GAME_END,
+        /**
+         * Updates are only written every flush interval, so a crash loses at most one interval of moves.
+         */
+        INTERVAL
+    }
+
+    private record Cached(GameData data, long lastUsed) {
+    }
+
+    private final GameDAO games;
+    private final Durability durability;
+    private final long idleMillis;
+    // all guarded by this
+    private final LinkedHashMap<Integer, Cached> cache;
+    // copies of the games waiting to be written, which nobody else changes
+    private LinkedHashMap<Integer, ChessGame> pending = new LinkedHashMap<>();
+    // changes whenever games are deleted, so that a failed flush doesn't restore their updates
+    private long generation;
+    // the copy of each game the other DAO last refused to write, until the update that queued it looks for it
+    private final Map<Integer, ChessGame> rejected = new HashMap<>();
+    // held while a batch is written, and taken before this when both are needed
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    public CachingGameDAO(GameDAO games) {
+        this(games, Durability.valueOf(DatabaseManager.getProperty("db.cache.durability", "game_end").toUpperCase()),
+                Long.parseLong(DatabaseManager.getProperty("db.cache.flushMillis", "1000")),
+                Integer.parseInt(DatabaseManager.getProperty("db.cache.size", "1000")),
+                Long.parseLong(DatabaseManager.getProperty("db.cache.idleMillis", "600000")));
+    }
+
+    public CachingGameDAO(GameDAO games, Durability durability, long flushMillis, int capacity, long idleMillis) {
+        this.games = games;
+        this.durability = durability;
+        this.idleMillis = idleMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Cached> eldest) {
+                return size() > capacity;
+            }
+        };
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("game-flush").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flushInBackground, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean clear() throws DataAccessException {
+        synchronized (this) {
+            cache.clear();
+            pending.clear();
+            rejected.clear();
+            generation++;
+        }
+        return games.clear();
+    }
+
+    @Override
+    public boolean add(GameData game) throws DataAccessException {
+        return games.add(game);
+    }
+
+    @Override
+    public int newGame(GameData newGame) throws DataAccessException {
+        return games.newGame(newGame);
+    }
+
+    @Override
+    public GameData get(Integer gameID) throws DataAccessException {
+        synchronized (this) {
+            Cached cached = cache.get(gameID);
+            if (cached != null) {
+                cache.put(gameID, new Cached(cached.data(), System.currentTimeMillis()));
+                return cached.data();
+            }
+        }
+        GameData data = games.get(gameID);
+        if (data == null) {
+            return null;
+        }
+        synchronized (this) {
+            Cached cached = cache.get(gameID);
+            if (cached != null) {
+                // someone else read it at the same time, and theirs may already be in use
+                return cached.data();
+            }
+            ChessGame waiting = pending.get(gameID);
+            if (waiting != null) {
+                data = new GameData(gameID, data.whiteUsername(), data.blackUsername(), data.gameName(),
+                        copy(waiting));
+            }
+            cache.put(gameID, new Cached(data, System.currentTimeMillis()));
+            return data;
+        }
+    }
+
+    @Override
+    public boolean delete(Integer gameID) throws DataAccessException {
+        synchronized (this) {
+            cache.remove(gameID);
+            pending.remove(gameID);
+            rejected.remove(gameID);
+            generation++;
+        }
+        return games.delete(gameID);
+    }
+
+    @Override
+    public Collection<GameData> getGameList() throws DataAccessException {
+        Collection<GameData> stored = games.getGameList();
+        List<GameData> list = new ArrayList<>(stored.size());
+        synchronized (this) {
+            for (GameData data : stored) {
+                ChessGame waiting = pending.get(data.gameID());
+                list.add(waiting == null ? data : new GameData(data.gameID(), data.whiteUsername(),
+                        data.blackUsername(), data.gameName(), waiting));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public Collection<GameSummary> getGameSummaries() throws DataAccessException {
+        Collection<GameSummary> stored = games.getGameSummaries();
+        List<GameSummary> list = new ArrayList<>(stored.size());
+        synchronized (this) {
+            for (GameSummary summary : stored) {
+                ChessGame waiting = pending.get(summary.gameID());
+                list.add(waiting == null ? summary : new GameSummary(summary.gameID(), summary.whiteUsername(),
+                        summary.blackUsername(), summary.gameName(), waiting.getStatus()));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Shows the status of updates not yet written, dropping games from the page that no longer pass the status filter
+     * because of them, so a page can come out short. Unless updates ending games are written at once, a game that just
+     * ended can also be missing from the finished games until its update is written.
+     */
+    @Override
+    public GamePage getGamePage(GameQuery query) throws DataAccessException {
+        GamePage stored = games.getGamePage(query);
+        List<GameSummary> list = new ArrayList<>(stored.games().size());
+        synchronized (this) {
+            for (GameSummary summary : stored.games()) {
+                ChessGame waiting = pending.get(summary.gameID());
+                GameSummary current = waiting == null ? summary : new GameSummary(summary.gameID(),
+                        summary.whiteUsername(), summary.blackUsername(), summary.gameName(), waiting.getStatus());
+                if (query.matches(current)) {
+                    list.add(current);
+                }
+            }
+        }
+        return new GamePage(list, stored.next());
+    }
+
+    /**
+     * Overlays and filters each summary as {@link #getGamePage} does.
+     */
+    @Override
+    public <E extends Exception> Integer forEachGameSummary(GameQuery query, SummaryVisitor<E> visitor)
+            throws DataAccessException, E {
+        return games.forEachGameSummary(query, summary -> {
+            ChessGame waiting;
+            synchronized (this) {
+                waiting = pending.get(summary.gameID());
+            }
+            GameSummary current = waiting == null ? summary : new GameSummary(summary.gameID(),
+                    summary.whiteUsername(), summary.blackUsername(), summary.gameName(), waiting.getStatus());
+            if (query.matches(current)) {
+                visitor.visit(current);
+            }
+        });
+    }
+
+    @Override
+    public boolean updateUsername(Integer gameID, ChessGame.TeamColor color, String newUsername)
+            throws AlreadyTakenException, DataAccessException {
+        boolean updated = games.updateUsername(gameID, color, newUsername);
+        synchronized (this) {
+            Cached cached = cache.get(gameID);
+            if (cached != null) {
+                GameData data = switch (color) {
+                    case WHITE -> cached.data().setWhitePlayer(newUsername);
+                    case BLACK -> cached.data().setBlackPlayer(newUsername);
+                };
+                cache.put(gameID, new Cached(data, System.currentTimeMillis()));
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Updates the cached game and queues it to be written. An update written at once is written with everything else
+     * waiting, after any flush already under way; if that fails, the cache goes back to the game as it was before, so
+     * the update can be reported as failed. If the other DAO refuses it, false is returned, and the game is read from
+     * it again next time.
+     */
+    @Override
+    public boolean updateGame(Integer gameID, ChessGame game) throws DataAccessException {
+        GameData old = get(gameID);
+        if (old == null) {
+            return false;
+        }
+        boolean writeNow = durability == Durability.WRITE_THROUGH
+                || durability == Durability.GAME_END && isOver(game.getStatus());
+        ChessGame queued = copy(game);
+        ChessGame previous;
+        synchronized (this) {
+            cache.put(gameID, new Cached(new GameData(gameID, old.whiteUsername(), old.blackUsername(),
+                    old.gameName(), game), System.currentTimeMillis()));
+            previous = pending.put(gameID, queued);
+            rejected.remove(gameID);
+        }
+        if (!writeNow) {
+            return true;
+        }
+        try {
+            flush();
+            synchronized (this) {
+                // the flush that wrote the game may have been another caller's
+                return rejected.get(gameID) != queued;
+            }
+        } catch (DataAccessException | RuntimeException e) {
+            synchronized (this) {
+                // the next read builds the game again from the database and the updates still waiting before this one
+                cache.remove(gameID);
+                if (pending.get(gameID) == queued) {
+                    if (previous == null) {
+                        pending.remove(gameID);
+                    } else {
+                        pending.put(gameID, previous);
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes every update still waiting, returning once they are written. A flush called while another is writing
+     * waits for it, then writes whatever is left. A game the other DAO refuses to write, because what it has stored is
+     * newer, is dropped from the cache along with any update queued for it since, which was made to the same
+     * out-of-date game, so that the next read loads the stored game.
+     */
+    public void flush() throws DataAccessException {
+        synchronized (flushLock) {
+            LinkedHashMap<Integer, ChessGame> batch;
+            long batchGeneration;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                batchGeneration = generation;
+                pending = new LinkedHashMap<>();
+            }
+            Set<Integer> refused;
+            try {
+                refused = games.updateGames(batch);
+            } catch (DataAccessException | RuntimeException e) {
+                synchronized (this) {
+                    if (generation == batchGeneration) {
+                        // put them back to try again next time, unless a newer update already replaced them
+                        batch.forEach(pending::putIfAbsent);
+                    }
+                }
+                throw e;
+            }
+            if (refused.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                for (Integer gameID : refused) {
+                    LOG.warn("Game {} was not written, so it will be read again", gameID);
+                    cache.remove(gameID);
+                    pending.remove(gameID);
+                    rejected.put(gameID, batch.get(gameID));
+                }
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (DataAccessException | RuntimeException e) {
+            LOG.error("Writing cached games failed: {}", e.getMessage());
+        }
+        dropIdle();
+    }
+
+    private synchronized void dropIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        // least recently used first, so the idle games are all at the front
+        for (Iterator<Cached> cached = cache.values().iterator(); cached.hasNext(); ) {
+            if (cached.next().lastUsed() >= cutoff) {
+                break;
+            }
+            cached.remove();
+        }
+    }
+
+    /**
+     * Writes every update still waiting and stops writing in the background.
+     */
+    public void close() throws DataAccessException {
+        flusher.shutdown();
+        flush();
+    }
+
+    private static boolean isOver(ChessGame.GameStatus status) {
+        return status == ChessGame.GameStatus.WHITE_WON || status == ChessGame.GameStatus.BLACK_WON
+                || status == ChessGame.GameStatus.STALEMATE;
+    }
+
+    /**
+     * Copies a game, so that the copy can be written while the original keeps changing.
+     */
+    private static ChessGame copy(ChessGame game) {
+        return ChessBinary.fromBytes(ChessBinary.toBytes(game));
+    }
+}
@@ -0,0 +1,271 @@
+package dataaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed number of database connections shared by everything that uses the database, so that most requests reuse an
+ * open connection instead of connecting and logging in to MySQL again.
+ * <p>
+ * A borrowed connection is checked before it is handed out, and closing it returns it to the pool after closing any
+ * statements left open on it and rolling back any unfinished transaction. Connections unused for too long are closed,
+ * and, when leak detection is on, a connection borrowed for too long is reported as probably leaked, along with where
+ * it was borrowed. Leak detection records the stack of every borrow, so it is off unless a leak time is given.
+ */
+public final class ConnectionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class);
+
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * The pool's state and totals so far, with wait times in milliseconds.
+     */
+    public record Stats(int active, int idle, long borrows, double meanWaitMillis, double maxWaitMillis, long timeouts,
+                        long opened, long discarded, long evicted, long leaks) {
+    }
+
+    private record Idle(Connection connection, long since) {
+    }
+
+    private final ConnectionFactory factory;
+    private final long timeoutMillis;
+    private final long idleMillis;
+    private final long leakMillis;
+    private final int validationSeconds;
+
+    private final Semaphore permits;
+    // most recently returned first, so the longest idle are at the end
+    private final ConcurrentLinkedDeque<Idle> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Lease> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sweeper;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    ConnectionPool(ConnectionFactory factory, int maxSize, long timeoutMillis, long idleMillis, long leakMillis,
+                   int validationSeconds) {
+        this.factory = factory;
+        this.timeoutMillis = timeoutMillis;
+        this.idleMillis = idleMillis;
+        this.leakMillis = leakMillis;
+        this.validationSeconds = validationSeconds;
+        permits = new Semaphore(maxSize, true);
+        long sweepMillis = Math.max((leakMillis > 0 ? Math.min(idleMillis, leakMillis) : idleMillis) / 2, 100);
+        sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("db-pool").daemon().factory());
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting for one to be returned if all of them are in use.
+     *
+     * @return a connection which is returned to the pool when closed
+     * @throws DataAccessException if no connection could be had in time or a new one couldn't be opened
+     */
+    Connection borrow() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new DataAccessException("Error: timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted waiting for a database connection");
+        }
+        long waited = System.nanoTime() - start;
+        borrows.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        try {
+            Lease lease = new Lease(connect());
+            borrowed.add(lease);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, lease);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return an idle connection that still works, or a new one
+     */
+    private Connection connect() throws SQLException {
+        long oldest = System.currentTimeMillis() - idleMillis;
+        Idle next;
+        while ((next = idle.pollFirst()) != null) {
+            if (next.since() >= oldest && isValid(next.connection())) {
+                return next.connection();
+            }
+            discarded.increment();
+            closeQuietly(next.connection());
+        }
+        Connection connection = factory.open();
+        opened.increment();
+        return connection;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(Lease lease) {
+        borrowed.remove(lease);
+        Connection connection = lease.connection;
+        try {
+            for (Statement statement : lease.statements) {
+                statement.close();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idle.addFirst(new Idle(connection, System.currentTimeMillis()));
+        } catch (SQLException e) {
+            discarded.increment();
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections that have been idle too long, and reports connections that have been borrowed too long.
+     */
+    private void sweep() {
+        long oldest = System.currentTimeMillis() - idleMillis;
+        for (Idle waiting : idle) {
+            // a connection borrowed in the meantime can't be removed, so only connections removed here are closed
+            if (waiting.since() < oldest && idle.remove(waiting)) {
+                evicted.increment();
+                closeQuietly(waiting.connection());
+            }
+        }
+        if (leakMillis <= 0) {
+            return;
+        }
+        long leakedBefore = System.currentTimeMillis() - leakMillis;
+        for (Lease lease : borrowed) {
+            if (lease.borrowedAt < leakedBefore && !lease.reported) {
+                lease.reported = true;
+                leaks.increment();
+                LOG.warn("Database connection borrowed {} ms ago was not returned",
+                        System.currentTimeMillis() - lease.borrowedAt, lease.origin);
+            }
+        }
+    }
+
+    public Stats stats() {
+        long count = borrows.sum();
+        return new Stats(borrowed.size(), idle.size(), count, waitNanos.sum() / 1e6 / Math.max(count, 1),
+                maxWaitNanos.get() / 1e6, timeouts.sum(), opened.sum(), discarded.sum(), evicted.sum(), leaks.sum());
+    }
+
+    /**
+     * Closes the idle connections and stops closing idle connections in the background. Borrowed connections are
+     * closed when they are returned.
+     */
+    void close() {
+        sweeper.shutdown();
+        Idle waiting;
+        while ((waiting = idle.pollFirst()) != null) {
+            closeQuietly(waiting.connection());
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // it is being thrown away anyway
+        }
+    }
+
+    /**
+     * Stands in for a borrowed connection, passing calls on to the real one until it is closed.
+     */
+    private final class Lease implements InvocationHandler {
+        private final Connection connection;
+        private final long borrowedAt = System.currentTimeMillis();
+        // where the connection was borrowed, only recorded when leaks are being looked for
+        private final Throwable origin = leakMillis > 0 ? new Throwable("borrowed here") : null;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean closed;
+        private volatile boolean reported;
+
+        Lease(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        giveBack(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "pooled " + connection;
+                }
+            }
+            if (closed) {
+                throw new SQLException("Connection was already returned to the pool");
+            }
+            Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement statement) {
+                // many callers never close their statements, which closing a real connection used to do for them
+                statements.add(statement);
+            }
+            return result;
+        }
+    }
+}
@@ -42,13 +42,12 @@ public class DBAuthDAO implements AuthDAO {
 
     @Override
     public boolean add(AuthData item) throws DataAccessException {
-        try (Connection conn = DatabaseManager.getConnection();
-             var insertStatement = conn.prepareStatement(
-                     "INSERT INTO auth_data (auth_token, username) VALUES(?, ?)")) {
-            insertStatement.setString(1, item.authToken());
-            insertStatement.setString(2, item.username());
-
-            insertStatement.executeUpdate();
+        try {
+            DatabaseManager.writes().write(item.username(), "INSERT INTO auth_data (auth_token, username) VALUES(?, ?)",
+                    insertStatement -> {
+                        insertStatement.setString(1, item.authToken());
+                        insertStatement.setString(2, item.username());
+                    });
             return true;
         } catch (SQLException e) {
             if (e.getErrorCode() == 1062) {
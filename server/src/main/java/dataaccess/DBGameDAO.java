@@ -1,37 +1,78 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessJson;
+import chess.ChessMove;
+import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import static server.WebException.*;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.ArrayList;
 
 
+/**
+ * Stores games in the game_data table. Each game's state is kept either as Gson JSON in the game column or, with
+ * {@code db.game.format=fen} in db.properties, as a FEN position in the fen column, a small fraction of the size and
+ * much cheaper to read back. Rows in either format are read correctly whichever format is configured for writing. The
+ * game status is also kept in the status column, so the game list never has to read the games themselves.
+ * <p>
+ * The game in game_data is only a snapshot, taken after the ply in its snapshot_ply column. Every move is appended to
+ * the game_moves table as it is made, and a game is read by replaying the moves after its snapshot. A new snapshot is
+ * written every {@code db.game.snapshotPlies} plies (default 20) and when the game ends, so most moves cost one small
+ * insert instead of rewriting the whole game, and game_moves keeps every game's full history. An update that is
+ * behind the log, as when an older state of a game arrives after a newer one, is rejected rather than rewinding it.
+ * <p>
+ * Game updates and seat changes go through {@link DatabaseManager#writes()}, so that updates to many games are
+ * committed together.
+ */
 public class DBGameDAO implements GameDAO {
-    private static final Gson SERIALIZER = new Gson();
+    private static final Logger LOG = LoggerFactory.getLogger(DBGameDAO.class);
+    private static final Gson SERIALIZER = ChessJson.GSON;
+    private static final boolean STORE_FEN =
+            DatabaseManager.getProperty("db.game.format", "json").equalsIgnoreCase("fen");
+    private static final String FINISHED_STATUSES = "('WHITE_WON', 'BLACK_WON', 'STALEMATE')";
+    static final int SNAPSHOT_PLIES =
+            Integer.parseInt(DatabaseManager.getProperty("db.game.snapshotPlies", "20"));
 
     static {
         try {
             DatabaseManager.createDatabase();
             try (Connection conn = DatabaseManager.getConnection()) {
                 var createUserTable = conn.prepareStatement("""
-                        
+
                            CREATE TABLE IF NOT EXISTS `game_data` (
                           `gameid` int NOT NULL AUTO_INCREMENT,
                           `white_username` varchar(64) DEFAULT NULL,
                           `black_username` varchar(64) DEFAULT NULL,
                           `game_name` varchar(32) NOT NULL,
-                          `game` json NOT NULL,
+                          `game` json DEFAULT NULL,
+                          `fen` varchar(100) DEFAULT NULL,
+                          `status` varchar(16) DEFAULT NULL,
+                          `snapshot_ply` int NOT NULL DEFAULT 0,
                           PRIMARY KEY (`gameid`),
                           KEY `white_username_idx` (`white_username`),
                           KEY `black_username_idx` (`black_username`),
+                          KEY `status_idx` (`status`),
+                          KEY `game_name_idx` (`game_name`),
                           CONSTRAINT `black_username` FOREIGN KEY (`black_username`)
                               REFERENCES `users` (`username`)
                               ON DELETE SET NULL
@@ -42,16 +83,117 @@ public class DBGameDAO implements GameDAO {
                               ON UPDATE CASCADE
                         )""");
                 createUserTable.executeUpdate();
+                addFenColumns(conn);
+                addListIndexes(conn);
+                createMoveLog(conn);
             }
         } catch (DataAccessException | SQLException e) {
             throw new RuntimeException("Game table creation and initialization failed: " + e.getMessage());
         }
     }
 
+    /**
+     * Brings a game_data table created before the fen and status columns existed up to date.
+     */
+    private static void addFenColumns(Connection conn) throws SQLException {
+        try (var columnQuery = conn.prepareStatement("""
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'game_data' AND column_name = 'fen'""");
+             var results = columnQuery.executeQuery()) {
+            if (results.next() && results.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (var alterStatement = conn.prepareStatement("""
+                ALTER TABLE game_data
+                    MODIFY `game` json DEFAULT NULL,
+                    ADD COLUMN `fen` varchar(100) DEFAULT NULL,
+                    ADD COLUMN `status` varchar(16) DEFAULT NULL""")) {
+            alterStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds the indexes the game list filters use to a game_data table created before they existed, and fills in the
+     * status of rows written in JSON format before the status column was always set, so they can be filtered on it.
+     */
+    private static void addListIndexes(Connection conn) throws SQLException {
+        try (var indexQuery = conn.prepareStatement("""
+                SELECT COUNT(*) FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'game_data' AND index_name = 'status_idx'""");
+             var results = indexQuery.executeQuery()) {
+            if (results.next() && results.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (var backfillStatement = conn.prepareStatement("""
+                UPDATE game_data SET status = JSON_UNQUOTE(JSON_EXTRACT(game, '$.status'))
+                WHERE status IS NULL AND game IS NOT NULL""");
+             var alterStatement = conn.prepareStatement("""
+                ALTER TABLE game_data
+                    ADD KEY `status_idx` (`status`),
+                    ADD KEY `game_name_idx` (`game_name`)""")) {
+            backfillStatement.executeUpdate();
+            alterStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Creates the game_moves table, and adds the snapshot_ply column to a game_data table created before it existed.
+     * Existing games' snapshots are taken to be at ply 0, which they are replayed from with no moves.
+     */
+    private static void createMoveLog(Connection conn) throws SQLException {
+        try (var createMoveTable = conn.prepareStatement("""
+                CREATE TABLE IF NOT EXISTS `game_moves` (
+                  `gameid` int NOT NULL,
+                  `ply` int NOT NULL,
+                  `move` int NOT NULL,
+                  `played_at` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                  PRIMARY KEY (`gameid`, `ply`)
+                )""")) {
+            createMoveTable.executeUpdate();
+        }
+        try (var columnQuery = conn.prepareStatement("""
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'game_data' AND column_name = 'snapshot_ply'""");
+             var results = columnQuery.executeQuery()) {
+            if (results.next() && results.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (var alterStatement = conn.prepareStatement(
+                "ALTER TABLE game_data ADD COLUMN `snapshot_ply` int NOT NULL DEFAULT 0")) {
+            alterStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Sets the game, fen, status and snapshot_ply parameters starting at index, leaving the column of the unused
+     * format null.
+     */
+    private static void setGame(PreparedStatement statement, int index, ChessGame game) throws SQLException {
+        statement.setString(index, STORE_FEN ? null : SERIALIZER.toJson(game));
+        statement.setString(index + 1, STORE_FEN ? game.toFen() : null);
+        statement.setString(index + 2, game.getStatus().name());
+        statement.setInt(index + 3, game.getPlyCount());
+    }
+
+    private static ChessGame readGame(ResultSet results) throws SQLException {
+        String fen = results.getString("fen");
+        if (fen == null) {
+            return SERIALIZER.fromJson(results.getString("game"), ChessGame.class);
+        }
+        ChessGame game = ChessGame.fromFen(fen);
+        game.setStatus(ChessGame.GameStatus.valueOf(results.getString("status")));
+        return game;
+    }
+
     public boolean clear() throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection();
-             var deleteStatement = conn.prepareStatement("TRUNCATE TABLE game_data")) {
+             var deleteStatement = conn.prepareStatement("TRUNCATE TABLE game_data");
+             var deleteMovesStatement = conn.prepareStatement("TRUNCATE TABLE game_moves")) {
             deleteStatement.executeUpdate();
+            deleteMovesStatement.executeUpdate();
             return true;
         } catch (SQLException e) {
             throw new DataAccessException("Error: game database clear failed: " + e.getMessage());
@@ -61,14 +203,14 @@ public class DBGameDAO implements GameDAO {
     public boolean add(GameData data) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection();
              var insertStatement = conn.prepareStatement(
-                     "INSERT INTO game_data (gameid, white_username, black_username, game_name, game) " +
-                             "VALUES(?, ?, ?, ?, ?)",
+                     "INSERT INTO game_data (gameid, white_username, black_username, game_name, game, fen, status, " +
+                             "snapshot_ply) VALUES(?, ?, ?, ?, ?, ?, ?, ?)",
                      RETURN_GENERATED_KEYS)) {
             insertStatement.setInt(1, data.gameID());
             insertStatement.setString(2, data.whiteUsername());
             insertStatement.setString(3, data.blackUsername());
             insertStatement.setString(4, data.gameName());
-            insertStatement.setString(5, SERIALIZER.toJson(data.game()));
+            setGame(insertStatement, 5, data.game());
 
             insertStatement.executeUpdate();
             return true;
@@ -83,13 +225,13 @@ public class DBGameDAO implements GameDAO {
     public int newGame(GameData data) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection();
              var insertStatement = conn.prepareStatement(
-                     "INSERT INTO game_data (white_username, black_username, game_name, game) " +
-                             "VALUES(?, ?, ?, ?)",
+                     "INSERT INTO game_data (white_username, black_username, game_name, game, fen, status, " +
+                             "snapshot_ply) VALUES(?, ?, ?, ?, ?, ?, ?)",
                      RETURN_GENERATED_KEYS)) {
             insertStatement.setString(1, data.whiteUsername());
             insertStatement.setString(2, data.blackUsername());
             insertStatement.setString(3, data.gameName());
-            insertStatement.setString(4, SERIALIZER.toJson(data.game()));
+            setGame(insertStatement, 4, data.game());
 
             insertStatement.executeUpdate();
             var resultSet = insertStatement.getGeneratedKeys();
@@ -107,15 +249,21 @@ public class DBGameDAO implements GameDAO {
     public GameData get(Integer gameID) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection();
              var queryStatement = conn.prepareStatement(
-                     "SELECT gameid, white_username, black_username, game_name, game FROM game_data WHERE gameid=?")) {
+                     "SELECT gameid, white_username, black_username, game_name, game, fen, status, snapshot_ply " +
+                             "FROM game_data WHERE gameid=?");
+             var movesStatement = conn.prepareStatement(
+                     "SELECT gameid, move FROM game_moves WHERE gameid=? AND ply>? ORDER BY ply")) {
             queryStatement.setInt(1, gameID);
             var results = queryStatement.executeQuery();
             if (!results.next()) {
                 return null;
             }
-            return new GameData(results.getInt("gameid"), results.getString("white_username"),
-                    results.getString("black_username"), results.getString("game_name"),
-                    SERIALIZER.fromJson(results.getString("game"), ChessGame.class));
+            GameData data = new GameData(results.getInt("gameid"), results.getString("white_username"),
+                    results.getString("black_username"), results.getString("game_name"), readGame(results));
+            movesStatement.setInt(1, gameID);
+            movesStatement.setInt(2, results.getInt("snapshot_ply"));
+            replayMoves(movesStatement.executeQuery(), Map.of(gameID, data.game()));
+            return data;
         } catch (SQLException e) {
             throw new DataAccessException("Error: game database select failed");
         }
@@ -124,9 +272,12 @@ public class DBGameDAO implements GameDAO {
     @Override
     public boolean delete(Integer gameID) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection();
-             var deleteStatement = conn.prepareStatement("DELETE FROM game_data WHERE gameid=?")) {
+             var deleteStatement = conn.prepareStatement("DELETE FROM game_data WHERE gameid=?");
+             var deleteMovesStatement = conn.prepareStatement("DELETE FROM game_moves WHERE gameid=?")) {
             deleteStatement.setInt(1, gameID);
             deleteStatement.executeUpdate();
+            deleteMovesStatement.setInt(1, gameID);
+            deleteMovesStatement.executeUpdate();
             return true;
         } catch (SQLException e) {
             throw new DataAccessException("Error: game database delete failed");
@@ -137,14 +288,20 @@ public class DBGameDAO implements GameDAO {
     public Collection<GameData> getGameList() throws DataAccessException {
         List<GameData> games = new ArrayList<>();
         try (Connection conn = DatabaseManager.getConnection();
-             var listStatement = conn.prepareStatement("SELECT * FROM game_data")) {
+             var listStatement = conn.prepareStatement("SELECT * FROM game_data");
+             var movesStatement = conn.prepareStatement("""
+                     SELECT m.gameid, m.move FROM game_moves m JOIN game_data g ON g.gameid = m.gameid
+                     WHERE m.ply > g.snapshot_ply ORDER BY m.gameid, m.ply""")) {
             var results = listStatement.executeQuery();
 
+            Map<Integer, ChessGame> byID = new HashMap<>();
             while (results.next()) {
-                games.add(new GameData(results.getInt("gameid"), results.getString("white_username"),
-                        results.getString("black_username"), results.getString("game_name"),
-                        SERIALIZER.fromJson(results.getString("game"), ChessGame.class)));
+                GameData data = new GameData(results.getInt("gameid"), results.getString("white_username"),
+                        results.getString("black_username"), results.getString("game_name"), readGame(results));
+                games.add(data);
+                byID.put(data.gameID(), data.game());
             }
+            replayMoves(movesStatement.executeQuery(), byID);
 
             return games;
         } catch (SQLException e) {
@@ -152,15 +309,116 @@ public class DBGameDAO implements GameDAO {
         }
     }
 
+    /**
+     * Reads only the summary columns. For rows written in JSON format before the status column was always set, MySQL
+     * reads the status out of the JSON, so the game still isn't sent.
+     */
+    @Override
+    public Collection<GameSummary> getGameSummaries() throws DataAccessException {
+        List<GameSummary> games = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             var listStatement = conn.prepareStatement("""
+                     SELECT gameid, white_username, black_username, game_name,
+                         COALESCE(status, JSON_UNQUOTE(JSON_EXTRACT(game, '$.status'))) AS status
+                     FROM game_data""");
+             var results = listStatement.executeQuery()) {
+            while (results.next()) {
+                games.add(readSummary(results));
+            }
+            return games;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: game database select failed");
+        }
+    }
+
+    @Override
+    public GamePage getGamePage(GameQuery query) throws DataAccessException {
+        List<GameSummary> games = new ArrayList<>();
+        Integer next = forEachGameSummary(query, games::add);
+        return new GamePage(games, next);
+    }
+
+    /**
+     * Finds the page by seeking to the first game after the last one of the page before in the primary key, so that
+     * every page costs the same however far into the list it is. Rows are streamed from MySQL one at a time instead of
+     * being read into memory all at once.
+     */
+    @Override
+    public <E extends Exception> Integer forEachGameSummary(GameQuery query, SummaryVisitor<E> visitor)
+            throws DataAccessException, E {
+        try (Connection conn = DatabaseManager.getConnection();
+             var pageStatement = prepareGamePage(conn, query);
+             var results = pageStatement.executeQuery()) {
+            int visited = 0;
+            Integer last = null;
+            while (results.next()) {
+                if (visited == query.limit()) {
+                    return last;
+                }
+                GameSummary summary = readSummary(results);
+                visitor.visit(summary);
+                visited++;
+                last = summary.gameID();
+            }
+            return null;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: game database select failed");
+        }
+    }
+
+    private static PreparedStatement prepareGamePage(Connection conn, GameQuery query) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT gameid, white_username, black_username, game_name, status FROM game_data WHERE gameid > ?");
+        List<String> parameters = new ArrayList<>();
+        if (query.openSeat()) {
+            sql.append(" AND (white_username IS NULL OR black_username IS NULL)");
+        }
+        if (query.player() != null) {
+            sql.append(" AND (white_username = ? OR black_username = ?)");
+            parameters.add(query.player());
+            parameters.add(query.player());
+        }
+        if (query.progress() != null) {
+            sql.append(switch (query.progress()) {
+                case FINISHED -> " AND status IN " + FINISHED_STATUSES;
+                case IN_PROGRESS -> " AND (status IS NULL OR status NOT IN " + FINISHED_STATUSES + ")";
+            });
+        }
+        if (query.namePrefix() != null) {
+            sql.append(" AND game_name LIKE ?");
+            parameters.add(query.namePrefix().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        sql.append(" ORDER BY gameid LIMIT ?");
+
+        var pageStatement = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        // tells MySQL Connector/J to stream the rows rather than read them all before returning the first
+        pageStatement.setFetchSize(Integer.MIN_VALUE);
+        pageStatement.setInt(1, query.after());
+        for (int i = 0; i < parameters.size(); i++) {
+            pageStatement.setString(i + 2, parameters.get(i));
+        }
+        // one more than the page holds, to tell whether there is a next page
+        pageStatement.setInt(parameters.size() + 2, query.limit() + 1);
+        return pageStatement;
+    }
+
+    private static GameSummary readSummary(ResultSet results) throws SQLException {
+        String status = results.getString("status");
+        return new GameSummary(results.getInt("gameid"), results.getString("white_username"),
+                results.getString("black_username"), results.getString("game_name"),
+                status == null ? null : ChessGame.GameStatus.valueOf(status));
+    }
+
     @Override
     public boolean updateUsername(Integer gameID, ChessGame.TeamColor color, String newUsername)
             throws AlreadyTakenException, DataAccessException {
+        String columnName = switch (color) {
+            case WHITE -> "white_username";
+            case BLACK -> "black_username";
+        };
+        // the connection goes back to the pool before waiting on the batched update, which needs one of its own
         try (Connection conn = DatabaseManager.getConnection()) {
-
-            String columnName = switch (color) {
-                case WHITE -> "white_username";
-                case BLACK -> "black_username";
-            };
             var queryStatement = conn.prepareStatement("SELECT " + columnName + " FROM game_data WHERE gameid=?");
             queryStatement.setInt(1, gameID);
 
@@ -175,33 +433,139 @@ public class DBGameDAO implements GameDAO {
             if (newUsername == null && old == null){
                 throw new RuntimeException("No player at username to leave game.");
             }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: game database select failed");
+        }
 
-
-            var updateStatement = conn.prepareStatement("UPDATE game_data SET " + columnName + "=? WHERE gameid=?");
-            updateStatement.setString(1, newUsername);
-            updateStatement.setInt(2, gameID);
-
-            updateStatement.executeUpdate();
-
+        try {
+            // only takes the seat if it is still free when the batched update runs
+            String takenCheck = newUsername == null ? "" : " AND " + columnName + " IS NULL";
+            int updated = DatabaseManager.writes().write(gameID,
+                    "UPDATE game_data SET " + columnName + "=? WHERE gameid=?" + takenCheck, updateStatement -> {
+                        updateStatement.setString(1, newUsername);
+                        updateStatement.setInt(2, gameID);
+                    });
+            if (newUsername != null && updated == 0) {
+                throw new AlreadyTakenException();
+            }
             return true;
         } catch (SQLException e) {
-            throw new DataAccessException("Error: game database select failed");
+            throw new DataAccessException("Error: game database update failed");
         }
     }
 
+    /**
+     * Appends the game's new moves to its move log, and writes a new snapshot if one is due.
+     */
     @Override
-    public boolean updateGame(Integer gameID, ChessGame game) throws DataAccessException{
-        try (Connection conn = DatabaseManager.getConnection()) {
+    public boolean updateGame(Integer gameID, ChessGame game) throws DataAccessException {
+        return updateGames(Map.of(gameID, game)).isEmpty();
+    }
 
-            var updateStatement = conn.prepareStatement("UPDATE game_data SET game=? WHERE gameid=?");
-            updateStatement.setString(1, SERIALIZER.toJson(game));
-            updateStatement.setInt(2, gameID);
+    /**
+     * Logs the moves of all the games in one transaction, which is committed along with other games' updates. A game
+     * that is behind its log is left as it is stored and its ID returned, for the caller to read the game again. The
+     * games are logged in order of ID, so that transactions on different writers lock their rows in the same order.
+     */
+    @Override
+    public Set<Integer> updateGames(Map<Integer, ChessGame> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return Set.of();
+        }
+        TreeMap<Integer, ChessGame> byID = new TreeMap<>(games);
+        Set<Integer> rejected = new HashSet<>();
+        try {
+            DatabaseManager.writes().write(byID.firstKey(), conn -> {
+                // the batch may run this again after a failure elsewhere in it
+                rejected.clear();
+                for (var game : byID.entrySet()) {
+                    if (!logGame(conn, game.getKey(), game.getValue())) {
+                        rejected.add(game.getKey());
+                    }
+                }
+            });
+            return rejected;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: game database update failed");
+        }
+    }
+
+    /**
+     * Brings a game's move log and snapshot up to date with the game, as {@link MoveLog#plan} decides, holding a lock
+     * on the game's row so that nothing else logs the game at the same time.
+     *
+     * @return whether the game was logged, which it isn't if there is no such game or the game is behind its log
+     */
+    private static boolean logGame(Connection conn, int gameID, ChessGame game) throws SQLException {
+        int snapshotPly;
+        int loggedPly;
+        String storedStatus;
+        try (var lockQuery = conn.prepareStatement(
+                "SELECT snapshot_ply, status FROM game_data WHERE gameid = ? FOR UPDATE")) {
+            lockQuery.setInt(1, gameID);
+            try (var results = lockQuery.executeQuery()) {
+                if (!results.next()) {
+                    return false;
+                }
+                snapshotPly = results.getInt("snapshot_ply");
+                storedStatus = results.getString("status");
+            }
+        }
+        // a locking read, so it sees the latest moves even if this transaction already read other games
+        try (var plyQuery = conn.prepareStatement("SELECT MAX(ply) FROM game_moves WHERE gameid = ? FOR UPDATE")) {
+            plyQuery.setInt(1, gameID);
+            try (var results = plyQuery.executeQuery()) {
+                loggedPly = results.next() ? Math.max(snapshotPly, results.getInt(1)) : snapshotPly;
+            }
+        }
 
-            updateStatement.executeUpdate();
+        MoveLog.Update update = MoveLog.plan(game, snapshotPly, loggedPly,
+                storedStatus == null ? null : ChessGame.GameStatus.valueOf(storedStatus), SNAPSHOT_PLIES);
+        if (update == null) {
+            LOG.warn("Not logging game {} at ply {}, which is behind its log at ply {}", gameID,
+                    game.getPlyCount(), loggedPly);
+            return false;
+        }
+        if (update.lastPly() >= update.firstPly()) {
+            List<ChessMove> history = game.getMoveHistory();
+            int historyStart = game.getPlyCount() - history.size() + 1;
+            try (var insertStatement = conn.prepareStatement(
+                    "INSERT INTO game_moves (gameid, ply, move) VALUES (?, ?, ?)")) {
+                for (int movePly = update.firstPly(); movePly <= update.lastPly(); movePly++) {
+                    insertStatement.setInt(1, gameID);
+                    insertStatement.setInt(2, movePly);
+                    insertStatement.setInt(3, history.get(movePly - historyStart).toPacked());
+                    insertStatement.addBatch();
+                }
+                insertStatement.executeBatch();
+            }
+        }
+        if (update.snapshot()) {
+            try (var updateStatement = conn.prepareStatement(
+                    "UPDATE game_data SET game=?, fen=?, status=?, snapshot_ply=? WHERE gameid=?")) {
+                setGame(updateStatement, 1, game);
+                updateStatement.setInt(5, gameID);
+                updateStatement.executeUpdate();
+            }
+        }
+        return true;
+    }
 
-            return true;
-        } catch (SQLException e) {
-            throw new DataAccessException("Error: game database select failed");
+    /**
+     * Makes the logged moves read by a query for the gameid and move columns, ordered by game and then ply, in the
+     * games they belong to.
+     */
+    private static void replayMoves(ResultSet moves, Map<Integer, ChessGame> games)
+            throws SQLException, DataAccessException {
+        try (moves) {
+            while (moves.next()) {
+                ChessGame game = games.get(moves.getInt("gameid"));
+                try {
+                    game.makeMove(ChessMove.fromPacked(moves.getInt("move")));
+                } catch (InvalidMoveException e) {
+                    throw new DataAccessException("Error: logged move doesn't fit game " + moves.getInt("gameid"));
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
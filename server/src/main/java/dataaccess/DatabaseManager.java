@@ -10,6 +10,9 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final Properties PROPERTIES = new Properties();
+    private static final ConnectionPool POOL;
+    private static final WriteBatcher WRITES;
 
     /*
      * Load the database information for the db.properties file.
@@ -20,19 +23,38 @@ public class DatabaseManager {
                 if (propStream == null) {
                     throw new Exception("Unable to load db.properties");
                 }
-                Properties props = new Properties();
-                props.load(propStream);
-                DATABASE_NAME = props.getProperty("db.name");
-                USER = props.getProperty("db.user");
-                PASSWORD = props.getProperty("db.password");
+                PROPERTIES.load(propStream);
+                DATABASE_NAME = PROPERTIES.getProperty("db.name");
+                USER = PROPERTIES.getProperty("db.user");
+                PASSWORD = PROPERTIES.getProperty("db.password");
 
-                var host = props.getProperty("db.host");
-                var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                var host = PROPERTIES.getProperty("db.host");
+                var port = Integer.parseInt(PROPERTIES.getProperty("db.port"));
+                // lets a JDBC batch of inserts be sent as one multi-row insert
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
+        POOL = new ConnectionPool(DatabaseManager::openConnection,
+                Integer.parseInt(getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(getProperty("db.pool.timeoutMillis", "5000")),
+                Long.parseLong(getProperty("db.pool.idleMillis", "300000")),
+                Long.parseLong(getProperty("db.pool.leakMillis", "0")),
+                Integer.parseInt(getProperty("db.pool.validationSeconds", "2")));
+        WRITES = new WriteBatcher(DatabaseManager::getConnection,
+                Integer.parseInt(getProperty("db.batch.writers", "2")),
+                Long.parseLong(getProperty("db.batch.windowMillis", "2")),
+                Integer.parseInt(getProperty("db.batch.maxWrites", "256")));
+    }
+
+    /**
+     * Reads an optional setting from db.properties.
+     *
+     * @return the setting's value, or defaultValue if db.properties doesn't set it
+     */
+    static String getProperty(String name, String defaultValue) {
+        return PROPERTIES.getProperty(name, defaultValue);
     }
 
     /**
@@ -41,8 +63,8 @@ public class DatabaseManager {
     static void createDatabase() throws DataAccessException {
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -51,10 +73,14 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrow a connection to the database from the connection pool, with the catalog
+     * set based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you are
+     * done with it, which returns it to the pool. The easiest way to do that is with
+     * a try-with-resource block. The pool is sized and tuned by the db.pool.maxSize
+     * (default 10), db.pool.timeoutMillis (5000), db.pool.idleMillis (300000),
+     * db.pool.leakMillis (0, leaving leak detection off) and db.pool.validationSeconds (2)
+     * properties.
      * <br/>
      * <code>
      * try (var conn = DbInfo.getConnection(databaseName)) {
@@ -63,12 +89,36 @@ public class DatabaseManager {
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
-        try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
-        }
+        return POOL.borrow();
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        conn.setCatalog(DATABASE_NAME);
+        return conn;
+    }
+
+    /**
+     * The writes which many callers make at once, and which needn't see their own results straight away, go through
+     * here to be committed together. They are spread over db.batch.writers (default 2) writers, each of which, while
+     * writes are arriving together, gathers them for up to db.batch.windowMillis (2) milliseconds and
+     * db.batch.maxWrites (256) writes.
+     */
+    static WriteBatcher writes() {
+        return WRITES;
+    }
+
+    /**
+     * @return how many writes have been committed together and in how many batches
+     */
+    public static WriteBatcher.Stats writeStats() {
+        return WRITES.stats();
+    }
+
+    /**
+     * @return how busy the connection pool is and how long callers have waited for connections
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return POOL.stats();
     }
 }
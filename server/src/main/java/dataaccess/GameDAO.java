@@ -2,9 +2,16 @@ package dataaccess;
 
 import chess.ChessGame;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
 import static server.WebException.*;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 public interface GameDAO extends DAO<GameData, Integer> {
     /**
@@ -14,6 +21,56 @@ public interface GameDAO extends DAO<GameData, Integer> {
      */
     Collection<GameData> getGameList() throws DataAccessException;
 
+    /**
+     * Retrieves what the game list shows about each game, without the games' boards.
+     *
+     * @return a Collection with a summary of each game in the database.
+     */
+    default Collection<GameSummary> getGameSummaries() throws DataAccessException {
+        return getGameList().stream().map(GameSummary::of).toList();
+    }
+
+    /**
+     * Retrieves one page of the summaries of the games that pass the query's filters.
+     *
+     * @param query the filters, and the page to retrieve.
+     * @return the page, with where the next page starts.
+     */
+    default GamePage getGamePage(GameQuery query) throws DataAccessException {
+        return GamePage.of(getGameSummaries().stream()
+                .filter(game -> game.gameID() > query.after() && query.matches(game))
+                .sorted(Comparator.comparingInt(GameSummary::gameID))
+                .limit(query.limit() + 1L)
+                .toList(), query.limit());
+    }
+
+    /**
+     * Receives game summaries one at a time, as they are read.
+     */
+    @FunctionalInterface
+    interface SummaryVisitor<E extends Exception> {
+        void visit(GameSummary game) throws E;
+    }
+
+    /**
+     * Passes each summary on one page of the games that pass the query's filters to the visitor as soon as it is read,
+     * so that the page never has to be held in memory all at once. The visitor may run while a database connection is
+     * held for the query, so it shouldn't wait on anything slow, such as a client reading a response.
+     *
+     * @param query   the filters, and the page to retrieve.
+     * @param visitor receives the summaries in order of game ID.
+     * @return where the next page starts, or null if this is the last page.
+     * @throws E if the visitor throws, after which no more summaries are read.
+     */
+    default <E extends Exception> Integer forEachGameSummary(GameQuery query, SummaryVisitor<E> visitor)
+            throws DataAccessException, E {
+        GamePage page = getGamePage(query);
+        for (GameSummary game : page.games()) {
+            visitor.visit(game);
+        }
+        return page.next();
+    }
+
     int newGame(GameData newGame) throws DataAccessException;
 
     @Override
@@ -40,4 +97,21 @@ public interface GameDAO extends DAO<GameData, Integer> {
             throws AlreadyTakenException, DataAccessException;
 
     boolean updateGame(Integer gameID, ChessGame game) throws DataAccessException;
+
+    /**
+     * Updates several games at once, as {@link #updateGame} would one at a time.
+     *
+     * @param games the new state of each game, by game ID.
+     * @return the IDs of the games that were not updated, such as those whose stored state is newer, which is empty if
+     * every game was updated.
+     */
+    default Set<Integer> updateGames(Map<Integer, ChessGame> games) throws DataAccessException {
+        Set<Integer> rejected = new HashSet<>();
+        for (var game : games.entrySet()) {
+            if (!updateGame(game.getKey(), game.getValue())) {
+                rejected.add(game.getKey());
+            }
+        }
+        return rejected;
+    }
 }
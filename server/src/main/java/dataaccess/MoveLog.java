@@ -0,0 +1,45 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameQuery;
+
+/**
+ * Decides what an update of a game writes to its move log and snapshot, for {@link DBGameDAO}.
+ */
+final class MoveLog {
+
+    /**
+     * The plies of the game's new moves to append to the log, none if lastPly is before firstPly, and whether to write
+     * the game as a new snapshot.
+     */
+    record Update(int firstPly, int lastPly, boolean snapshot) {
+    }
+
+    private MoveLog() {
+    }
+
+    /**
+     * Plans bringing the log up to date with the game. The moves not yet logged are the last ones in the game's
+     * history, which ends at the game's current ply. A snapshot is due when enough plies have passed since the last
+     * one, when the game has just ended, and when the game's history doesn't reach back to the last logged move, so
+     * the log can't be extended from it.
+     *
+     * @param snapshotPly   the ply of the stored snapshot
+     * @param loggedPly     the ply of the last logged move, or of the snapshot if it is later
+     * @param storedStatus  the status stored with the snapshot, or null if there is none
+     * @param snapshotPlies how many plies to log between snapshots
+     * @return what to write, or null if the game is behind the log, as when an older state of it arrives after a
+     * newer one, in which case nothing may be written
+     */
+    static Update plan(ChessGame game, int snapshotPly, int loggedPly, ChessGame.GameStatus storedStatus,
+                       int snapshotPlies) {
+        int ply = game.getPlyCount();
+        if (ply < loggedPly) {
+            return null;
+        }
+        int firstPly = ply - game.getMoveHistory().size() + 1;
+        boolean ended = GameQuery.isFinished(game.getStatus()) && game.getStatus() != storedStatus;
+        boolean snapshot = firstPly > loggedPly + 1 || ply - snapshotPly >= snapshotPlies || ended;
+        return new Update(Math.max(loggedPly + 1, firstPly), ply, snapshot);
+    }
+}
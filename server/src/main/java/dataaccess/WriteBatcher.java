@@ -0,0 +1,294 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects database writes from many callers and commits them together, so that a busy server pays for one commit for
+ * many writes instead of one each. Runs of the same statement are sent with {@link PreparedStatement#executeBatch()},
+ * which Connector/J only turns into one multi-row statement, and so one trip to MySQL, when the connection URL sets
+ * {@code rewriteBatchedStatements=true}, as {@link DatabaseManager}'s does; otherwise it still sends them one by one.
+ * <p>
+ * Writes are spread over a fixed number of writers by a key, such as the ID of the game written, so writes with the
+ * same key are always done in the order they were submitted while writes with different keys can be done at the same
+ * time on different connections. Each writer takes the writes waiting for it as one batch. A write arriving at an idle
+ * writer is done at once; only when more writes are already waiting does the writer go on taking in whatever arrives
+ * over the next few milliseconds, up to a maximum number of writes. A batch's writes are done in order, all in one
+ * transaction, and each caller's future completes once the transaction commits. If anything in the batch fails, the
+ * batch is rolled back and its writes are done again one transaction each, so a failing write only fails its own
+ * caller.
+ */
+public final class WriteBatcher {
+
+    interface ConnectionSource {
+        Connection get() throws DataAccessException;
+    }
+
+    /**
+     * Sets the parameters of a batched statement.
+     */
+    public interface Parameters {
+        void set(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * A write that can't be a single batched statement, run on the batch's connection inside its transaction.
+     */
+    public interface Work {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Totals so far, to tell how well writes are being grouped.
+     */
+    public record Stats(long writes, long batches, long commits, long retried) {
+    }
+
+    /**
+     * One submitted write, either a statement with its parameters or some work.
+     */
+    private record Write(String sql, Parameters parameters, Work work, CompletableFuture<Integer> done) {
+    }
+
+    private static final Write STOP = new Write(null, null, null, null);
+
+    private final ConnectionSource connections;
+    private final long windowNanos;
+    private final int maxWrites;
+    private final Writer[] writers;
+    private volatile boolean closed;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    /**
+     * @param writers      how many writers to spread writes over, each with its own thread and, while writing, its own
+     *                     connection
+     * @param windowMillis how long a writer with writes waiting goes on taking in more before writing its batch
+     * @param maxWrites    the most writes in one batch
+     */
+    WriteBatcher(ConnectionSource connections, int writers, long windowMillis, int maxWrites) {
+        this.connections = connections;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxWrites = maxWrites;
+        this.writers = new Writer[writers];
+        for (int i = 0; i < writers; i++) {
+            this.writers[i] = new Writer("db-writer-" + i);
+        }
+    }
+
+    /**
+     * Queues a statement to be run with the given parameters in the next batch of the key's writer.
+     *
+     * @return a future completed with the statement's update count once it is committed
+     */
+    public CompletableFuture<Integer> submit(Object key, String sql, Parameters parameters) {
+        return enqueue(key, new Write(sql, parameters, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * Queues work to be run in the transaction of the next batch of the key's writer.
+     *
+     * @return a future completed once the work is committed
+     */
+    public CompletableFuture<Integer> submit(Object key, Work work) {
+        return enqueue(key, new Write(null, null, work, new CompletableFuture<>()));
+    }
+
+    /**
+     * Runs a statement in the next batch of the key's writer, waiting for it to be committed.
+     *
+     * @return the statement's update count
+     * @throws SQLException if the statement itself failed
+     * @throws DataAccessException if it couldn't be run, such as when no connection could be had
+     */
+    public int write(Object key, String sql, Parameters parameters) throws SQLException, DataAccessException {
+        return await(submit(key, sql, parameters));
+    }
+
+    /**
+     * Runs work in the next batch of the key's writer, waiting for it to be committed.
+     *
+     * @throws SQLException if the work itself failed
+     * @throws DataAccessException if it couldn't be run, such as when no connection could be had
+     */
+    public void write(Object key, Work work) throws SQLException, DataAccessException {
+        await(submit(key, work));
+    }
+
+    public Stats stats() {
+        return new Stats(writes.sum(), batches.sum(), commits.sum(), retried.sum());
+    }
+
+    /**
+     * Stops taking writes, and waits for the ones already queued to be done.
+     */
+    void close() throws InterruptedException {
+        closed = true;
+        for (Writer writer : writers) {
+            writer.queue.add(STOP);
+        }
+        for (Writer writer : writers) {
+            writer.thread.join();
+        }
+    }
+
+    private CompletableFuture<Integer> enqueue(Object key, Write write) {
+        if (closed) {
+            write.done().completeExceptionally(new DataAccessException("Error: database writes were stopped"));
+        } else {
+            writers[Math.floorMod(key.hashCode(), writers.length)].queue.add(write);
+        }
+        return write.done();
+    }
+
+    private static int await(CompletableFuture<Integer> done) throws SQLException, DataAccessException {
+        try {
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted waiting for a database write");
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case SQLException sqlException -> throw sqlException;
+                case DataAccessException dataAccessException -> throw dataAccessException;
+                case RuntimeException runtimeException -> throw runtimeException;
+                default -> throw new DataAccessException("Error: database write failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * One thread writing the batches of the writes queued for it.
+     */
+    private final class Writer {
+        final LinkedBlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+        final Thread thread;
+
+        Writer(String name) {
+            thread = Thread.ofPlatform().name(name).daemon().start(this::writeBatches);
+        }
+
+        private void writeBatches() {
+            List<Write> batch = new ArrayList<>(maxWrites);
+            boolean stopping = false;
+            while (!stopping) {
+                batch.clear();
+                try {
+                    Write next = queue.take();
+                    // a lone write isn't held back; the window only matters once writes are arriving together
+                    boolean busy = !queue.isEmpty();
+                    long deadline = System.nanoTime() + windowNanos;
+                    while (next != null && next != STOP) {
+                        batch.add(next);
+                        if (batch.size() >= maxWrites) {
+                            break;
+                        }
+                        next = busy ? queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) : queue.poll();
+                    }
+                    stopping = next == STOP;
+                } catch (InterruptedException e) {
+                    stopping = true;
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+            }
+            Write left;
+            while ((left = queue.poll()) != null) {
+                if (left != STOP) {
+                    left.done().completeExceptionally(new DataAccessException("Error: database writes were stopped"));
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<Write> batch) {
+        writes.add(batch.size());
+        batches.increment();
+        try (Connection conn = connections.get()) {
+            conn.setAutoCommit(false);
+            int[] counts;
+            try {
+                counts = run(conn, batch);
+                conn.commit();
+                commits.increment();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                retryOneByOne(conn, batch);
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).done().complete(counts[i]);
+            }
+        } catch (DataAccessException | SQLException | RuntimeException e) {
+            for (Write write : batch) {
+                write.done().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void retryOneByOne(Connection conn, List<Write> batch) {
+        retried.add(batch.size());
+        for (Write write : batch) {
+            if (write.done().isDone()) {
+                continue;
+            }
+            try {
+                int count = run(conn, List.of(write))[0];
+                conn.commit();
+                commits.increment();
+                write.done().complete(count);
+            } catch (SQLException | RuntimeException e) {
+                write.done().completeExceptionally(e);
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackFailed) {
+                    // the connection is broken, so the writes left can't be done either
+                    batch.forEach(left -> left.done().completeExceptionally(rollbackFailed));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the writes in order, sending each run of writes with the same statement as one JDBC batch.
+     *
+     * @return each write's update count, 0 for work
+     */
+    private static int[] run(Connection conn, List<Write> batch) throws SQLException {
+        int[] counts = new int[batch.size()];
+        int start = 0;
+        while (start < batch.size()) {
+            Write first = batch.get(start);
+            if (first.work() != null) {
+                first.work().run(conn);
+                start++;
+                continue;
+            }
+            int end = start;
+            try (PreparedStatement statement = conn.prepareStatement(first.sql())) {
+                while (end < batch.size() && first.sql().equals(batch.get(end).sql())) {
+                    batch.get(end).parameters().set(statement);
+                    statement.addBatch();
+                    end++;
+                }
+                int[] runCounts = statement.executeBatch();
+                System.arraycopy(runCounts, 0, counts, start, runCounts.length);
+            }
+            start = end;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,46 @@
+package server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for the messages the WebSocket handler sends: how many sends there were, how many sessions they
+ * reached, and how long was spent serializing the messages compared with handing them to the sessions' outboxes; and
+ * how many out of date game states slow clients were spared and how many slow clients were disconnected.
+ */
+final class BroadcastStats {
+    private final LongAdder broadcasts = new LongAdder();
+    private final LongAdder recipients = new LongAdder();
+    private final LongAdder serializeNanos = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder slowConsumers = new LongAdder();
+
+    /**
+     * The totals so far, with the times in microseconds per send.
+     */
+    record Snapshot(long broadcasts, long recipients, double serializeMicrosPerBroadcast,
+                    double sendMicrosPerBroadcast, long droppedMessages, long slowConsumerDisconnects) {
+    }
+
+    void record(int recipientCount, long serializeTime, long sendTime) {
+        broadcasts.increment();
+        recipients.add(recipientCount);
+        serializeNanos.add(serializeTime);
+        sendNanos.add(sendTime);
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    void recordSlowConsumer() {
+        slowConsumers.increment();
+    }
+
+    Snapshot snapshot() {
+        long count = broadcasts.sum();
+        double perBroadcast = Math.max(count, 1) * 1000.0;
+        return new Snapshot(count, recipients.sum(), serializeNanos.sum() / perBroadcast,
+                sendNanos.sum() / perBroadcast, dropped.sum(), slowConsumers.sum());
+    }
+}
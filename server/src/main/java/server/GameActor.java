@@ -0,0 +1,116 @@
+package server;
+
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static server.Server.GAME_SERVICE;
+
+/**
+ * Runs the WebSocket commands for one game one at a time, in the order they arrived, and keeps the game in memory
+ * between them. Since only the game's actor changes it while clients are connected, commands for a game never race
+ * with each other, and the game is only read from the database when the actor doesn't already hold it.
+ * <p>
+ * Commands run on a virtual thread that is started when a command arrives for an idle actor and finishes once none are
+ * left, so an idle game holds no thread. Once nobody is connected to the game, its actor is {@linkplain #retire()
+ * retired}, dropping the game and the actor itself, so only games with clients connected are held here.
+ */
+final class GameActor {
+    private static final Logger LOG = LoggerFactory.getLogger(GameActor.class);
+    private static final Map<Integer, GameActor> ACTORS = new ConcurrentHashMap<>();
+
+    private final int gameID;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    // only touched by commands, which never run at the same time
+    private GameData game;
+    private boolean retired;
+
+    private GameActor(int gameID) {
+        this.gameID = gameID;
+    }
+
+    static GameActor of(int gameID) {
+        return ACTORS.computeIfAbsent(gameID, GameActor::new);
+    }
+
+    /**
+     * Makes the game's actor read the game from the database again, after the game was changed without it.
+     */
+    static void invalidate(int gameID) {
+        GameActor actor = ACTORS.get(gameID);
+        if (actor != null) {
+            actor.submit(actor::forget);
+        }
+    }
+
+    static void invalidateAll() {
+        for (GameActor actor : ACTORS.values()) {
+            actor.submit(actor::forget);
+        }
+    }
+
+    /**
+     * Queues a command to run after every command already queued for this game.
+     */
+    void submit(Runnable command) {
+        mailbox.add(command);
+        if (running.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("game-" + gameID).start(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            Runnable command;
+            while ((command = mailbox.poll()) != null) {
+                if (retired) {
+                    // sent to this actor by someone who got it just before it retired
+                    of(gameID).submit(command);
+                    continue;
+                }
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Command for game {} failed", gameID, e);
+                }
+            }
+            running.set(false);
+            // a command queued just before running was cleared found the actor still running, so run it here
+        } while (!mailbox.isEmpty() && running.compareAndSet(false, true));
+    }
+
+    /**
+     * @return the game, read from the database unless it is already in memory, or null if there is no such game
+     */
+    GameData game() throws DataAccessException {
+        if (game == null) {
+            game = GAME_SERVICE.getGame(gameID);
+        }
+        return game;
+    }
+
+    /**
+     * Drops the game from memory, so the next command reads it from the database again.
+     */
+    void forget() {
+        game = null;
+    }
+
+    /**
+     * Drops the game and removes the actor, so the game's next command starts a new one. Only call this from one of
+     * the actor's own commands; any commands still reaching this actor are passed on to the new one.
+     */
+    void retire() {
+        game = null;
+        retired = true;
+        ACTORS.remove(gameID, this);
+    }
+}
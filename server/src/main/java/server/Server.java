@@ -1,9 +1,16 @@
 package server;
 
+import chess.ChessJson;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import dataaccess.*;
 import model.AuthData;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
+import org.eclipse.jetty.io.EndPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import service.ClearService;
 import service.GameService;
 import service.UserService;
@@ -11,6 +18,10 @@ import spark.Request;
 import spark.Response;
 import spark.Spark;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import static server.WebException.*;
@@ -22,20 +33,24 @@ public class Server {
     static final ClearService CLEAR_SERVICE;
     static final UserService USER_SERVICE;
     static final GameService GAME_SERVICE;
+    private static final CachingGameDAO GAME_CACHE;
 
     static {
         UserDAO userDAO = new DBUserDAO();
-        GameDAO gameDAO = new DBGameDAO();
+        GAME_CACHE = new CachingGameDAO(new DBGameDAO());
         AuthDAO authDAO = new DBAuthDAO();
-        CLEAR_SERVICE = new ClearService(userDAO, gameDAO, authDAO);
+        CLEAR_SERVICE = new ClearService(userDAO, GAME_CACHE, authDAO);
         USER_SERVICE = new UserService(userDAO, authDAO);
-        GAME_SERVICE = new GameService(gameDAO);
+        GAME_SERVICE = new GameService(GAME_CACHE);
     }
 
-    private static final Gson SERIALIZER = new Gson();
+    private static final Logger LOG = LoggerFactory.getLogger(Server.class);
+    private static final Gson SERIALIZER = ChessJson.GSON;
     private static final String JSON = "application/json";
     private static final String EMPTY = "{}";
     private static final String AUTH = "Authorization";
+    // how long writing the game list may wait on a client, while it holds a database connection
+    private static final long GAME_LIST_WRITE_TIMEOUT_MILLIS = 5000;
 
     public int run(int desiredPort) {
         Spark.port(desiredPort);
@@ -58,6 +73,10 @@ public class Server {
 
         Spark.delete("/db", Server::clearHandler);
 
+        Spark.get("/stats/broadcast", Server::broadcastStatsHandler);
+        Spark.get("/stats/pool", Server::poolStatsHandler);
+        Spark.get("/stats/writes", Server::writeStatsHandler);
+
         Spark.awaitInitialization();
         return Spark.port();
     }
@@ -65,6 +84,11 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        try {
+            GAME_CACHE.flush();
+        } catch (DataAccessException e) {
+            LOG.error("Writing cached games failed: {}", e.getMessage());
+        }
     }
 
 
@@ -111,6 +135,7 @@ public class Server {
         try {
             success = GAME_SERVICE.joinGame(username, joinReq);
             if (success) {
+                GameActor.invalidate(joinReq.gameID());
                 return successHandler(res, EMPTY);
             }
             throw new WebException("Error: failed to join valid game with valid username and open slot");
@@ -119,15 +144,121 @@ public class Server {
         }
     }
 
+    /**
+     * Lists one page of games. The optional query parameters are after (the next value of the page before), limit,
+     * open=true, player, status (in_progress or finished) and name (a prefix of the game name).
+     */
     private static Object listGamesHandler(Request req, Response res)
+            throws WebException, DataAccessException, IOException {
+        USER_SERVICE.authenticate(req.headers(AUTH));
+        GameQuery query;
+        try {
+            String progress = req.queryParams("status");
+            query = new GameQuery(intParam(req, "after", 0), intParam(req, "limit", GameQuery.MAX_LIMIT),
+                    Boolean.parseBoolean(req.queryParams("open")), req.queryParams("player"),
+                    progress == null ? null : GameQuery.Progress.valueOf(progress.toUpperCase()),
+                    req.queryParams("name"));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+        StreamedGameList list = new StreamedGameList(req, res);
+        try {
+            Integer next = GAME_SERVICE.forEachGame(query, list);
+            list.finish(next);
+        } finally {
+            list.close();
+        }
+        return "";
+    }
+
+    /**
+     * Writes the page of games straight to the response as each game is read from the database, in the same JSON a
+     * {@link model.GamePage} would be. Nothing is written until the first game is read, so a failed query still gets an
+     * ordinary error response.
+     * <p>
+     * The games are written while the query's database connection is held, so a write to a client that has stopped
+     * reading fails after {@link #GAME_LIST_WRITE_TIMEOUT_MILLIS} instead of waiting out the connection's usual idle
+     * timeout; that only happens once the response buffer is full, as a page is at most {@link GameQuery#MAX_LIMIT}
+     * games.
+     */
+    private static final class StreamedGameList implements GameDAO.SummaryVisitor<IOException> {
+        private final Response res;
+        private final EndPoint endPoint;
+        private final long idleTimeout;
+        private JsonWriter writer;
+
+        StreamedGameList(Request req, Response res) {
+            this.res = res;
+            endPoint = org.eclipse.jetty.server.Request.getBaseRequest(req.raw()).getHttpChannel().getEndPoint();
+            idleTimeout = endPoint.getIdleTimeout();
+        }
+
+        private void start() throws IOException {
+            res.type(JSON);
+            res.status(200);
+            endPoint.setIdleTimeout(GAME_LIST_WRITE_TIMEOUT_MILLIS);
+            writer = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8)));
+            writer.beginObject().name("games").beginArray();
+        }
+
+        @Override
+        public void visit(GameSummary game) throws IOException {
+            if (writer == null) {
+                start();
+            }
+            SERIALIZER.toJson(game, GameSummary.class, writer);
+        }
+
+        void finish(Integer next) throws IOException {
+            if (writer == null) {
+                start();
+            }
+            writer.endArray();
+            if (next != null) {
+                writer.name("next").value(next);
+            }
+            writer.endObject();
+            writer.flush();
+        }
+
+        /**
+         * Puts back the HTTP connection's idle timeout, for the requests it carries next.
+         */
+        void close() {
+            endPoint.setIdleTimeout(idleTimeout);
+        }
+    }
+
+    private static int intParam(Request req, String name, int defaultValue) {
+        String value = req.queryParams(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+
+    private static Object broadcastStatsHandler(Request req, Response res)
+            throws UnauthorizedRequestException, DataAccessException {
+        USER_SERVICE.authenticate(req.headers(AUTH));
+        return successHandler(res, SERIALIZER.toJson(WebSocketHandler.broadcastStats()));
+    }
+
+
+    private static Object poolStatsHandler(Request req, Response res)
+            throws UnauthorizedRequestException, DataAccessException {
+        USER_SERVICE.authenticate(req.headers(AUTH));
+        return successHandler(res, SERIALIZER.toJson(DatabaseManager.poolStats()));
+    }
+
+    private static Object writeStatsHandler(Request req, Response res)
             throws UnauthorizedRequestException, DataAccessException {
         USER_SERVICE.authenticate(req.headers(AUTH));
-        return successHandler(res, SERIALIZER.toJson(Map.of("games", GAME_SERVICE.listGames())));
+        return successHandler(res, SERIALIZER.toJson(DatabaseManager.writeStats()));
     }
 
 
     private static Object clearHandler(Request req, Response res) throws DataAccessException {
         if (CLEAR_SERVICE.clearAll()) {
+            GameActor.invalidateAll();
             res.type(JSON);
             res.status(200);
         } else {
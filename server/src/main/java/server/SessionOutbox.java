@@ -0,0 +1,150 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * The messages waiting to be written to one WebSocket session. Messages are written with Jetty's asynchronous send, one
+ * at a time in the order they were queued, so whoever queues a message never waits for the client to read it.
+ * <p>
+ * At most a fixed number of messages wait at once; past that the client is too slow to keep up, and what happens
+ * depends on the {@link SlowConsumerPolicy}. The capacity and policy are read from the {@code chess.ws.queueCapacity}
+ * (default 64) and {@code chess.ws.slowConsumer} ({@code drop}, the default, or {@code disconnect}) system properties.
+ */
+final class SessionOutbox implements WriteCallback {
+
+    enum SlowConsumerPolicy {
+        /**
+         * Every LOAD_GAME replaces the game states still waiting, which it makes out of date, and a client whose queue
+         * is still full is disconnected.
+         */
+        DROP_STALE_GAMES,
+        /**
+         * Nothing is dropped, and a client whose queue is full is disconnected.
+         */
+        DISCONNECT
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionOutbox.class);
+
+    static final int CAPACITY = Integer.getInteger("chess.ws.queueCapacity", 64);
+    static final SlowConsumerPolicy POLICY =
+            System.getProperty("chess.ws.slowConsumer", "drop").equalsIgnoreCase("disconnect")
+                    ? SlowConsumerPolicy.DISCONNECT : SlowConsumerPolicy.DROP_STALE_GAMES;
+
+    private record Outgoing(String json, ServerMessageType type) {
+    }
+
+    private final Session session;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final BroadcastStats stats;
+    // guarded by this; the message being written is not in the queue
+    private final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+    private boolean writing;
+    private boolean closed;
+
+    SessionOutbox(Session session, int capacity, SlowConsumerPolicy policy, BroadcastStats stats) {
+        this.session = session;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.stats = stats;
+    }
+
+    Session session() {
+        return session;
+    }
+
+    /**
+     * Queues a message to be written after those already queued, starting the write at once if none is in progress.
+     */
+    void send(String json, ServerMessageType type) {
+        Outgoing next;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (type == ServerMessageType.LOAD_GAME && policy == SlowConsumerPolicy.DROP_STALE_GAMES) {
+                dropGameStates();
+            }
+            if (queue.size() >= capacity) {
+                stats.recordSlowConsumer();
+                close(StatusCode.POLICY_VIOLATION, "Too slow reading messages");
+                return;
+            }
+            queue.add(new Outgoing(json, type));
+            if (writing) {
+                return;
+            }
+            writing = true;
+            next = queue.poll();
+        }
+        write(next);
+    }
+
+    /**
+     * Drops the queued LOAD_GAME and MOVE_MADE messages, all of which a newer LOAD_GAME replaces.
+     */
+    private void dropGameStates() {
+        for (Iterator<Outgoing> waiting = queue.iterator(); waiting.hasNext(); ) {
+            ServerMessageType type = waiting.next().type();
+            if (type == ServerMessageType.LOAD_GAME || type == ServerMessageType.MOVE_MADE) {
+                waiting.remove();
+                stats.recordDropped();
+            }
+        }
+    }
+
+    private void write(Outgoing message) {
+        if (session.isOpen()) {
+            session.getRemote().sendString(message.json(), this);
+        } else {
+            writeFailed(null);
+        }
+    }
+
+    @Override
+    public void writeSuccess() {
+        Outgoing next;
+        synchronized (this) {
+            next = closed ? null : queue.poll();
+            if (next == null) {
+                writing = false;
+                return;
+            }
+        }
+        write(next);
+    }
+
+    @Override
+    public void writeFailed(Throwable cause) {
+        synchronized (this) {
+            closed = true;
+            writing = false;
+            queue.clear();
+        }
+        if (cause != null) {
+            LOG.warn("WebSocket write failed: {}", cause.getMessage());
+        }
+    }
+
+    /**
+     * Drops any messages still waiting and closes the session.
+     */
+    synchronized void close() {
+        close(StatusCode.NORMAL, null);
+    }
+
+    private void close(int statusCode, String reason) {
+        closed = true;
+        queue.clear();
+        session.close(statusCode, reason);
+    }
+}
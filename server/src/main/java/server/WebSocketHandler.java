@@ -1,22 +1,25 @@
 package server;
 
 import chess.ChessGame;
+import chess.ChessJson;
 import chess.ChessMove;
 import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ServerMessage;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static server.Server.GAME_SERVICE;
 import static server.Server.USER_SERVICE;
@@ -25,10 +28,16 @@ import static chess.ChessGame.TeamColor;
 
 @WebSocket
 public class WebSocketHandler {
-    private static final Gson SERIALIZER = new Gson();
-    private static final Map<String, Session> SESSION_LOOKUP = new ConcurrentHashMap<>();
+    private static final Gson SERIALIZER = ChessJson.GSON;
+    private static final Map<String, SessionOutbox> SESSION_LOOKUP = new ConcurrentHashMap<>();
+    // the same outboxes by session, and the users connected on each session, so a session's are found without a scan
+    private static final Map<Session, SessionOutbox> SESSION_OUTBOXES = new ConcurrentHashMap<>();
+    private static final Map<Session, Set<String>> SESSION_USERS = new ConcurrentHashMap<>();
     private static final Map<Integer, List<String>> AFFECTED_LOOKUP = new ConcurrentHashMap<>();
     private static final Map<String, Integer> USER_TO_CURRENT_GAME_LOOKUP = new ConcurrentHashMap<>();
+    // users whose clients asked to be sent MOVE_MADE messages rather than the whole game after each move
+    private static final Set<String> MOVE_UPDATE_USERS = ConcurrentHashMap.newKeySet();
+    private static final BroadcastStats BROADCAST_STATS = new BroadcastStats();
 
 
     @OnWebSocketMessage
@@ -38,35 +47,60 @@ public class WebSocketHandler {
         try {
             username = USER_SERVICE.getUsername(received.authToken());
         } catch (UnauthorizedRequestException e) {
-            session.getRemote().sendString(SERIALIZER.toJson(ServerMessage.error("Error: unauthorized.")));
+            ServerMessage error = ServerMessage.error("Error: unauthorized.");
+            outboxFor(session).send(SERIALIZER.toJson(error), error.serverMessageType());
             return;
         }
         int gameID = received.gameID();
-
-        switch(received.commandType()){
-            case CONNECT -> connect(session, username, gameID);
-            case LEAVE -> leave(gameID, username);
-            case RESIGN -> resign(gameID, username);
-            case MAKE_MOVE -> makeMove(gameID, username, received.move());
-            case null, default -> throw new BadRequestException();
+        UserGameCommand.CommandType type = received.commandType();
+        if(type == null){
+            throw new BadRequestException();
         }
+
+        // commands for a game run one at a time on its actor, which also holds the game between them
+        GameActor.of(gameID).submit(() -> {
+            switch(type){
+                case CONNECT -> connect(session, username, gameID, Boolean.TRUE.equals(received.moveUpdates()));
+                case LEAVE -> leave(gameID, username);
+                case RESIGN -> resign(gameID, username);
+                case MAKE_MOVE -> makeMove(gameID, username, received.move());
+                case RELOAD -> reload(gameID, username);
+            }
+        });
     }
 
-    private static void connect(Session session, String username, int gameID) throws IOException {
-        SESSION_LOOKUP.put(username, session);
-        Integer old = USER_TO_CURRENT_GAME_LOOKUP.put(username, gameID);
-        if(old != null){
-            var oldTwo = AFFECTED_LOOKUP.get(old);
-            if(oldTwo != null){
-                oldTwo.remove(username);
+    private static void connect(Session session, String username, int gameID, boolean moveUpdates) {
+        // a session connecting again keeps its outbox, so that only one outbox ever writes to a session
+        SessionOutbox current = SESSION_LOOKUP.get(username);
+        if(current == null || current.session() != session){
+            SessionOutbox replaced = SESSION_LOOKUP.put(username, outboxFor(session));
+            if(replaced != null && replaced.session() != session){
+                // the user's previous session is abandoned, so drop what it was still to be sent and close it
+                forgetSession(replaced.session(), username);
+                replaced.close();
             }
         }
+        SESSION_USERS.computeIfAbsent(session, s -> ConcurrentHashMap.newKeySet()).add(username);
+        if(moveUpdates){
+            MOVE_UPDATE_USERS.add(username);
+        } else {
+            MOVE_UPDATE_USERS.remove(username);
+        }
+        Integer old = USER_TO_CURRENT_GAME_LOOKUP.put(username, gameID);
+        if(old != null && old != gameID){
+            // each game's list of users is only changed by the game's own actor
+            GameActor.of(old).submit(() -> dropWatcher(old, username));
+        } else if(old != null && AFFECTED_LOOKUP.containsKey(gameID)){
+            AFFECTED_LOOKUP.get(gameID).remove(username);
+        }
         GameData game = getGameOrNotify(gameID, username);
         if(game == null){
+            if(!AFFECTED_LOOKUP.containsKey(gameID)){
+                GameActor.of(gameID).retire();
+            }
             return;
         }
-        AFFECTED_LOOKUP.putIfAbsent(gameID, new ArrayList<>());
-        AFFECTED_LOOKUP.get(gameID).add(username);
+        AFFECTED_LOOKUP.computeIfAbsent(gameID, id -> new CopyOnWriteArrayList<>()).add(username);
         TeamColor color = getColor(username, game);
         sendToUser(ServerMessage.load(SERIALIZER.toJson(game.game())), username);
         notifyOthersJoin(gameID, username, color);
@@ -79,7 +113,7 @@ public class WebSocketHandler {
     }
 
 
-    private static void leave(int gameID, String username) throws IOException {
+    private static void leave(int gameID, String username) {
         GameData game = getGameOrNotify(gameID, username);
         if(game == null){
             return;
@@ -95,12 +129,71 @@ public class WebSocketHandler {
                 sendToUser(ServerMessage.error("Error: something went very wrong (leaveGame)."), username);
                 return;
             }
+            GameActor.of(gameID).forget();
         }
         notifyOthersLeave(gameID, username, color);
 //        sendToUser(ServerMessage.notification("You left the game."), username);
-        AFFECTED_LOOKUP.get(gameID).remove(username);
-        SESSION_LOOKUP.remove(username).close();
+        dropWatcher(gameID, username);
+        // the client may have disconnected while the leave waited for the actor, which already closed the outbox
+        SessionOutbox out = SESSION_LOOKUP.remove(username);
+        if(out != null){
+            // the session stays open, and gets a new outbox if it connects again
+            forgetSession(out.session(), username);
+            out.close();
+        }
         USER_TO_CURRENT_GAME_LOOKUP.remove(username);
+        MOVE_UPDATE_USERS.remove(username);
+    }
+
+    /**
+     * Treats a user whose client disconnected without leaving as gone from their game.
+     */
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        SessionOutbox out = SESSION_OUTBOXES.remove(session);
+        Set<String> usernames = SESSION_USERS.remove(session);
+        if(out == null){
+            return;
+        }
+        out.close();
+        for(String username: usernames != null ? usernames : Set.<String>of()){
+            // a user who already connected again on another session keeps their new outbox
+            if(!SESSION_LOOKUP.remove(username, out)){
+                continue;
+            }
+            MOVE_UPDATE_USERS.remove(username);
+            Integer gameID = USER_TO_CURRENT_GAME_LOOKUP.remove(username);
+            if(gameID != null){
+                GameActor.of(gameID).submit(() -> dropWatcher(gameID, username));
+            }
+        }
+    }
+
+    /**
+     * Stops sending the game's messages to the user, and retires the game's actor once nobody is left. Only run this
+     * on the game's actor.
+     */
+    private static void dropWatcher(int gameID, String username) {
+        List<String> remaining = AFFECTED_LOOKUP.get(gameID);
+        if(remaining != null){
+            remaining.remove(username);
+        }
+        if(remaining == null || remaining.isEmpty()){
+            AFFECTED_LOOKUP.remove(gameID);
+            GameActor.of(gameID).retire();
+        }
+    }
+
+    /**
+     * Sends the whole game again to a client whose own copy stopped matching the MOVE_MADE messages it was sent, this
+     * time with the moves that led to it, which the other messages leave out.
+     */
+    private static void reload(int gameID, String username) {
+        GameData game = getGameOrNotify(gameID, username);
+        if(game == null){
+            return;
+        }
+        sendToUser(ServerMessage.load(ChessJson.WITH_HISTORY.toJson(game.game())), username);
     }
 
     private static TeamColor getColor(String username, GameData game) {
@@ -114,9 +207,9 @@ public class WebSocketHandler {
         sendToList(getOthersAffected(gameID, username), message);
     }
 
-    private static GameData getGameOrNotify(int gameID, String username) throws IOException {
+    private static GameData getGameOrNotify(int gameID, String username) {
         try{
-            GameData data = GAME_SERVICE.getGame(gameID);
+            GameData data = GameActor.of(gameID).game();
             if(data == null){
                 sendToUser(ServerMessage.error("Error: no game with that ID in database."), username);
             }
@@ -127,7 +220,7 @@ public class WebSocketHandler {
         }
     }
 
-    private static void resign(int gameID, String username) throws IOException {
+    private static void resign(int gameID, String username) {
         GameData game = getGameOrNotify(gameID, username);
         if(game == null){
             return;
@@ -140,12 +233,12 @@ public class WebSocketHandler {
             return;
         }
 
-        sendToList(AFFECTED_LOOKUP.get(gameID), ServerMessage.notification(
+        sendToList(AFFECTED_LOOKUP.getOrDefault(gameID, List.of()), ServerMessage.notification(
                 "The " + color + " player, " + username + ", has resigned."));
 
     }
 
-    private static boolean resignGameOrNotify(GameData game, String username, TeamColor side) throws IOException {
+    private static boolean resignGameOrNotify(GameData game, String username, TeamColor side) {
         try {
             game.game().resign(side);
         } catch (InvalidMoveException e) {
@@ -155,7 +248,7 @@ public class WebSocketHandler {
         return updateGameOrNotify(game.gameID(), game.game(), username);
     }
 
-    private static void makeMove(int gameID, String username, ChessMove move) throws IOException {
+    private static void makeMove(int gameID, String username, ChessMove move) {
         GameData data = getGameOrNotify(gameID, username);
         if(data == null){
             return;
@@ -168,7 +261,9 @@ public class WebSocketHandler {
             sendToUser(ServerMessage.error("Error: cannot move for opponent."), username);
             return;
         }
+        String san;
         try {
+            san = data.game().toSan(move);
             data.game().makeMove(move);
         } catch (InvalidMoveException e) {
             sendToUser(ServerMessage.error("Error: invalid move."), username);
@@ -178,9 +273,9 @@ public class WebSocketHandler {
             return;
         }
 
-        List<String> allClients = AFFECTED_LOOKUP.get(gameID);
-        sendToList(allClients, ServerMessage.load(SERIALIZER.toJson(data.game())));
-        notifyOthersMove(gameID, username, color, move);
+        List<String> allClients = AFFECTED_LOOKUP.getOrDefault(gameID, List.of());
+        sendMoveToList(allClients, data.game(), move);
+        notifyOthersMove(gameID, username, color, san);
 
         var status = data.game().getStatus();
         String checkmate = "### Checkmate! ###";
@@ -191,12 +286,12 @@ public class WebSocketHandler {
         }
     }
 
-    private static void notifyOthersMove(int gameID, String username, TeamColor color, ChessMove move) {
-        ServerMessage message = ServerMessage.notification(username + " (" + color + ") made the move " + move);
+    private static void notifyOthersMove(int gameID, String username, TeamColor color, String san) {
+        ServerMessage message = ServerMessage.notification(username + " (" + color + ") made the move " + san);
         sendToList(getOthersAffected(gameID, username), message);
     }
 
-    private static TeamColor getColorOrNotify(String username, GameData game) throws IOException {
+    private static TeamColor getColorOrNotify(String username, GameData game) {
         TeamColor color = getColor(username, game);
         if(color == null){
             sendToUser(ServerMessage.error("Error: you aren't playing this game."), username);
@@ -205,13 +300,19 @@ public class WebSocketHandler {
     }
 
 
-    private static boolean updateGameOrNotify(int gameID, ChessGame game, String username) throws IOException {
+    private static boolean updateGameOrNotify(int gameID, ChessGame game, String username) {
+        boolean updated;
         try{
-            return GAME_SERVICE.updateGame(gameID, game);
+            updated = GAME_SERVICE.updateGame(gameID, game);
         } catch (DataAccessException e) {
             sendToUser(ServerMessage.error("Error: could not update game data."), username);
-            return false;
+            updated = false;
+        }
+        if(!updated){
+            // the game in memory has changes the database doesn't, so read it again next time
+            GameActor.of(gameID).forget();
         }
+        return updated;
     }
 
 
@@ -221,20 +322,89 @@ public class WebSocketHandler {
         return toNotify;
     }
 
+    /**
+     * @return the time spent serializing and sending messages so far
+     */
+    static BroadcastStats.Snapshot broadcastStats() {
+        return BROADCAST_STATS.snapshot();
+    }
+
+    /**
+     * Sends the message to every user in toNotify, serializing it once for all of them.
+     */
     private static void sendToList(List<String> toNotify, ServerMessage message) {
+        long start = System.nanoTime();
+        String json = SERIALIZER.toJson(message);
+        long serialized = System.nanoTime();
         for(String name: toNotify){
-            try {
-                sendToUser(message, name);
-            } catch (IOException e) {
-                System.err.println("IO Exception??");
+            sendJson(json, message.serverMessageType(), name);
+        }
+        BROADCAST_STATS.record(toNotify.size(), serialized - start, System.nanoTime() - serialized);
+    }
+
+    /**
+     * Sends the move to the clients that asked for MOVE_MADE messages and the whole game to the rest, serializing
+     * each of the two messages once, and the game only if some client needs it.
+     */
+    private static void sendMoveToList(List<String> toNotify, ChessGame game, ChessMove move) {
+        long serializeTime = 0;
+        long sendTime = 0;
+        String moveMade = null;
+        String load = null;
+        for(String name: toNotify){
+            long start = System.nanoTime();
+            boolean moveUpdates = MOVE_UPDATE_USERS.contains(name);
+            if(moveUpdates && moveMade == null){
+                moveMade = SERIALIZER.toJson(ServerMessage.moveMade(game, move));
+            } else if(!moveUpdates && load == null){
+                load = SERIALIZER.toJson(ServerMessage.load(SERIALIZER.toJson(game)));
+            }
+            long serialized = System.nanoTime();
+            if(moveUpdates){
+                sendJson(moveMade, ServerMessage.ServerMessageType.MOVE_MADE, name);
+            } else {
+                sendJson(load, ServerMessage.ServerMessageType.LOAD_GAME, name);
             }
+            serializeTime += serialized - start;
+            sendTime += System.nanoTime() - serialized;
         }
+        BROADCAST_STATS.record(toNotify.size(), serializeTime, sendTime);
+    }
+
+    /**
+     * @return the outbox already writing to the session, or a new one if its user hasn't connected on it yet, so that
+     * the session is still only ever written by one outbox at a time
+     */
+    private static SessionOutbox outboxFor(Session session) {
+        return SESSION_OUTBOXES.computeIfAbsent(session,
+                s -> new SessionOutbox(s, SessionOutbox.CAPACITY, SessionOutbox.POLICY, BROADCAST_STATS));
+    }
+
+    /**
+     * Stops tracking the user on the session, and the session's outbox once no user is left on it.
+     */
+    private static void forgetSession(Session session, String username) {
+        SESSION_USERS.computeIfPresent(session, (s, usernames) -> {
+            usernames.remove(username);
+            if(!usernames.isEmpty()){
+                return usernames;
+            }
+            SESSION_OUTBOXES.remove(s);
+            return null;
+        });
+    }
+
+    private static void sendToUser(ServerMessage message, String username) {
+        sendJson(SERIALIZER.toJson(message), message.serverMessageType(), username);
     }
 
-    private static void sendToUser(ServerMessage message, String username) throws IOException {
-        Session out = SESSION_LOOKUP.get(username);
-        if(out.isOpen()){
-            out.getRemote().sendString(SERIALIZER.toJson(message));
+    /**
+     * Queues the message in the user's outbox, so it is written without waiting for the user's client to read it.
+     */
+    private static void sendJson(String json, ServerMessage.ServerMessageType type, String username) {
+        SessionOutbox out = SESSION_LOOKUP.get(username);
+        if(out != null){
+            out.send(json, type);
         }
     }
 
@@ -5,6 +5,9 @@ import chess.ChessGame.TeamColor;
 import dataaccess.DataAccessException;
 import dataaccess.GameDAO;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
 import static server.WebException.*;
 
 import java.util.Collection;
@@ -45,8 +48,17 @@ public class GameService {
     public record JoinGameRequest(TeamColor playerColor, int gameID) {
     }
 
-    public Collection<GameData> listGames() throws DataAccessException {
-        return games.getGameList();
+    public Collection<GameSummary> listGames() throws DataAccessException {
+        return games.getGameSummaries();
+    }
+
+    public GamePage listGames(GameQuery query) throws DataAccessException {
+        return games.getGamePage(query);
+    }
+
+    public <E extends Exception> Integer forEachGame(GameQuery query, GameDAO.SummaryVisitor<E> visitor)
+            throws DataAccessException, E {
+        return games.forEachGameSummary(query, visitor);
     }
 
     public boolean updateGame(Integer gameID, ChessGame game) throws DataAccessException {
@@ -0,0 +1,285 @@
+package dataaccess;
+
+import chess.ChessBinary;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingGameDAOTest {
+
+    /**
+     * Counts the calls the cache makes to the DAO behind it, and can fail or hold up batches of updates.
+     */
+    private static final class CountingGameDAO extends MemoryGameDAO {
+        volatile int gets;
+        volatile int updates;
+        volatile int batches;
+        volatile boolean fail;
+        // when set, batches are refused without writing anything, as for games behind what is stored
+        volatile boolean refuse;
+        // when set, a batch waits for release after counting down started
+        volatile CountDownLatch started;
+        volatile CountDownLatch release;
+
+        @Override
+        public GameData get(Integer gameID) {
+            gets++;
+            return super.get(gameID);
+        }
+
+        @Override
+        public boolean updateGame(Integer gameID, ChessGame game) {
+            updates++;
+            return super.updateGame(gameID, game);
+        }
+
+        @Override
+        public Set<Integer> updateGames(Map<Integer, ChessGame> games) throws DataAccessException {
+            batches++;
+            if (fail) {
+                throw new DataAccessException("Error: test failure");
+            }
+            if (refuse) {
+                return Set.copyOf(games.keySet());
+            }
+            if (release != null) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new DataAccessException("Error: interrupted");
+                }
+            }
+            return super.updateGames(games);
+        }
+    }
+
+    private static CachingGameDAO cache(CountingGameDAO stored, CachingGameDAO.Durability durability) {
+        // a long interval, so that only the test flushes
+        return new CachingGameDAO(stored, durability, 60_000, 2, 60_000);
+    }
+
+    private static void move(ChessGame game, String from, String to) throws InvalidMoveException {
+        game.makeMove(ChessMove.fromUci(from + to));
+    }
+
+    @Test
+    void updatesWaitForFlushAndCoalesce() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.INTERVAL);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+
+        ChessGame game = games.get(id).game();
+        move(game, "e2", "e4");
+        assertTrue(games.updateGame(id, game));
+        move(game, "e7", "e5");
+        assertTrue(games.updateGame(id, game));
+        assertSame(game, games.get(id).game());
+        assertEquals(1, stored.gets);
+        assertEquals(0, stored.updates);
+        // the game list already shows the waiting update
+        assertEquals(game.toFen(), games.getGameList().iterator().next().game().toFen());
+
+        ChessGame ended = games.get(id).game();
+        ended.resign(ChessGame.TeamColor.WHITE);
+        games.updateGame(id, ended);
+        assertEquals(ChessGame.GameStatus.BLACK_WON, games.getGameSummaries().iterator().next().status());
+
+        games.flush();
+        assertEquals(1, stored.batches);
+        assertEquals(1, stored.updates);
+        assertEquals(game.toFen(), stored.get(id).game().toFen());
+        games.flush();
+        assertEquals(1, stored.batches);
+    }
+
+    @Test
+    void writtenCopyDoesNotChangeWithTheGame() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.INTERVAL);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        ChessGame game = games.get(id).game();
+        move(game, "d2", "d4");
+        games.updateGame(id, game);
+        String updatedFen = game.toFen();
+        move(game, "d7", "d5");
+        games.flush();
+        assertEquals(updatedFen, stored.get(id).game().toFen());
+    }
+
+    @Test
+    void gameEndIsWrittenAtOnce() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.GAME_END);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        ChessGame game = games.get(id).game();
+        move(game, "f2", "f3");
+        games.updateGame(id, game);
+        assertEquals(0, stored.updates);
+        game.resign(ChessGame.TeamColor.BLACK);
+        games.updateGame(id, game);
+        assertEquals(1, stored.updates);
+        assertEquals(ChessGame.GameStatus.WHITE_WON, stored.get(id).game().getStatus());
+        int batches = stored.batches;
+        games.flush();
+        assertEquals(batches, stored.batches);
+    }
+
+    @Test
+    void gameEndIsNotOverwrittenByASlowerFlush() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.GAME_END);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        ChessGame game = games.get(id).game();
+        move(game, "f2", "f3");
+        games.updateGame(id, game);
+
+        stored.started = new CountDownLatch(1);
+        stored.release = new CountDownLatch(1);
+        Thread flusher = Thread.ofPlatform().start(() -> {
+            try {
+                games.flush();
+            } catch (DataAccessException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(stored.started.await(10, TimeUnit.SECONDS));
+        move(game, "e7", "e5");
+        move(game, "g2", "g4");
+        move(game, "d8", "h4");
+        assertEquals(ChessGame.GameStatus.BLACK_WON, game.getStatus());
+        Thread ender = Thread.ofPlatform().start(() -> {
+            try {
+                games.updateGame(id, game);
+            } catch (DataAccessException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        // the game-ending update has to wait for the flush of the older state to finish
+        while (ender.getState() != Thread.State.BLOCKED && ender.getState() != Thread.State.TERMINATED) {
+            Thread.onSpinWait();
+        }
+        stored.release.countDown();
+        flusher.join();
+        ender.join();
+        assertEquals(game.toFen(), stored.get(id).game().toFen());
+        assertEquals(ChessGame.GameStatus.BLACK_WON, stored.get(id).game().getStatus());
+    }
+
+    @Test
+    void failedWriteLeavesTheGameAsBefore() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.GAME_END);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        ChessGame game = games.get(id).game();
+        move(game, "f2", "f3");
+        games.updateGame(id, game);
+        String waitingFen = game.toFen();
+
+        move(game, "e7", "e5");
+        move(game, "g2", "g4");
+        move(game, "d8", "h4");
+        stored.fail = true;
+        assertThrows(DataAccessException.class, () -> games.updateGame(id, game));
+        GameData reread = games.get(id);
+        assertNotSame(game, reread.game());
+        assertEquals(waitingFen, reread.game().toFen());
+
+        stored.fail = false;
+        games.flush();
+        assertEquals(waitingFen, stored.get(id).game().toFen());
+    }
+
+    @Test
+    void refusedWriteIsReportedAndReadAgain() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.WRITE_THROUGH);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        // a copy, as the memory DAO hands out the game it stores
+        ChessGame game = ChessBinary.fromBytes(ChessBinary.toBytes(games.get(id).game()));
+        move(game, "e2", "e4");
+        stored.refuse = true;
+        assertFalse(games.updateGame(id, game));
+
+        int gets = stored.gets;
+        GameData reread = games.get(id);
+        assertEquals(gets + 1, stored.gets);
+        assertEquals(new ChessGame().toFen(), reread.game().toFen());
+    }
+
+    @Test
+    void refusedFlushDropsTheQueuedUpdates() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.INTERVAL);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        // a copy, as the memory DAO hands out the game it stores
+        ChessGame game = ChessBinary.fromBytes(ChessBinary.toBytes(games.get(id).game()));
+        move(game, "e2", "e4");
+        assertTrue(games.updateGame(id, game));
+        stored.refuse = true;
+        games.flush();
+        assertEquals(1, stored.batches);
+
+        stored.refuse = false;
+        games.flush();
+        assertEquals(1, stored.batches);
+        assertEquals(new ChessGame().toFen(), games.get(id).game().toFen());
+    }
+
+    @Test
+    void evictedGamesKeepTheirUpdates() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.INTERVAL);
+        int first = games.newGame(new GameData(0, null, null, "first", new ChessGame()));
+        ChessGame game = games.get(first).game();
+        move(game, "g1", "f3");
+        games.updateGame(first, game);
+        for (int i = 0; i < 3; i++) {
+            games.get(games.newGame(new GameData(0, null, null, "other " + i, new ChessGame())));
+        }
+        int gets = stored.gets;
+        GameData reread = games.get(first);
+        assertEquals(gets + 1, stored.gets);
+        assertEquals(game.toFen(), reread.game().toFen());
+        assertNotSame(game, reread.game());
+    }
+
+    @Test
+    void usernamesAndDeletesReachTheCache() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.INTERVAL);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        games.get(id);
+        games.updateUsername(id, ChessGame.TeamColor.WHITE, "white");
+        assertEquals("white", games.get(id).whiteUsername());
+
+        games.updateGame(id, games.get(id).game());
+        games.delete(id);
+        assertNull(games.get(id));
+        games.flush();
+        assertEquals(0, stored.batches);
+        assertFalse(games.updateGame(id, new ChessGame()));
+    }
+
+    @Test
+    void writeThroughWritesEveryUpdate() throws Exception {
+        CountingGameDAO stored = new CountingGameDAO();
+        CachingGameDAO games = cache(stored, CachingGameDAO.Durability.WRITE_THROUGH);
+        int id = games.newGame(new GameData(0, null, null, "cached", new ChessGame()));
+        ChessGame game = games.get(id).game();
+        move(game, "e2", "e4");
+        games.updateGame(id, game);
+        assertEquals(1, stored.updates);
+        assertEquals(game.toFen(), stored.get(id).game().toFen());
+        games.close();
+    }
+}
@@ -0,0 +1,175 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    /**
+     * Stands in for MySQL, counting what is done to the connections it opens.
+     */
+    private static final class FakeDatabase {
+        final List<FakeConnection> connections = new ArrayList<>();
+
+        Connection open() {
+            FakeConnection connection = new FakeConnection();
+            connections.add(connection);
+            return connection.proxy;
+        }
+    }
+
+    private static final class FakeConnection {
+        boolean open = true;
+        boolean valid = true;
+        boolean autoCommit = true;
+        int rollbacks;
+        final List<boolean[]> statements = new ArrayList<>();
+        final Connection proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        open = false;
+                        yield null;
+                    }
+                    case "isClosed" -> !open;
+                    case "isValid" -> open && valid;
+                    case "getAutoCommit" -> autoCommit;
+                    case "setAutoCommit" -> {
+                        autoCommit = (boolean) args[0];
+                        yield null;
+                    }
+                    case "rollback" -> {
+                        rollbacks++;
+                        yield null;
+                    }
+                    case "prepareStatement" -> statement();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        private PreparedStatement statement() {
+            boolean[] closed = {false};
+            statements.add(closed);
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        assertEquals("close", method.getName());
+                        closed[0] = true;
+                        return null;
+                    });
+        }
+    }
+
+    private static ConnectionPool pool(FakeDatabase database, int size, long idleMillis) {
+        return new ConnectionPool(database::open, size, 100, idleMillis, 60_000, 1);
+    }
+
+    @Test
+    void reusesReturnedConnections() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        ConnectionPool pool = pool(database, 2, 60_000);
+        for (int i = 0; i < 5; i++) {
+            try (Connection connection = pool.borrow()) {
+                assertFalse(connection.isClosed());
+            }
+        }
+        assertEquals(1, database.connections.size());
+        assertTrue(database.connections.getFirst().open);
+        ConnectionPool.Stats stats = pool.stats();
+        assertEquals(5, stats.borrows());
+        assertEquals(1, stats.opened());
+        assertEquals(0, stats.active());
+        assertEquals(1, stats.idle());
+        pool.close();
+        assertFalse(database.connections.getFirst().open);
+    }
+
+    @Test
+    void waitsForAConnectionThenTimesOut() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        ConnectionPool pool = pool(database, 2, 60_000);
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        assertEquals(2, pool.stats().active());
+        assertThrows(DataAccessException.class, pool::borrow);
+        assertEquals(1, pool.stats().timeouts());
+
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(20);
+                first.close();
+            } catch (InterruptedException | SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        pool.borrow().close();
+        second.close();
+        assertEquals(2, database.connections.size());
+        assertTrue(pool.stats().maxWaitMillis() > 0);
+        pool.close();
+    }
+
+    @Test
+    void cleansUpReturnedConnections() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        ConnectionPool pool = pool(database, 1, 60_000);
+        Connection connection = pool.borrow();
+        connection.setAutoCommit(false);
+        connection.prepareStatement("SELECT 1");
+        connection.close();
+        connection.close();
+        assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+        assertTrue(connection.isClosed());
+
+        FakeConnection real = database.connections.getFirst();
+        assertTrue(real.open);
+        assertTrue(real.autoCommit);
+        assertEquals(1, real.rollbacks);
+        assertTrue(real.statements.getFirst()[0]);
+        pool.close();
+    }
+
+    @Test
+    void replacesBrokenAndIdleConnections() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        ConnectionPool pool = pool(database, 1, 60_000);
+        pool.borrow().close();
+        database.connections.getFirst().valid = false;
+        pool.borrow().close();
+        assertEquals(2, database.connections.size());
+        assertFalse(database.connections.getFirst().open);
+        assertEquals(1, pool.stats().discarded());
+        pool.close();
+
+        FakeDatabase quiet = new FakeDatabase();
+        ConnectionPool shortLived = pool(quiet, 1, 0);
+        shortLived.borrow().close();
+        Thread.sleep(300);
+        assertFalse(quiet.connections.getFirst().open);
+        assertEquals(1, shortLived.stats().evicted());
+        shortLived.close();
+    }
+
+    @Test
+    void reportsLeaksOnlyWhenLookingForThem() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        ConnectionPool unwatched = new ConnectionPool(database::open, 1, 100, 60_000, 0, 1);
+        Connection kept = unwatched.borrow();
+        Thread.sleep(300);
+        assertEquals(0, unwatched.stats().leaks());
+        kept.close();
+        unwatched.close();
+
+        ConnectionPool watched = new ConnectionPool(database::open, 1, 100, 60_000, 50, 1);
+        Connection leaked = watched.borrow();
+        Thread.sleep(300);
+        assertEquals(1, watched.stats().leaks());
+        leaked.close();
+        watched.close();
+    }
+}
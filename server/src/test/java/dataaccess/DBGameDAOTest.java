@@ -1,8 +1,19 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import model.GameData;
 import org.junit.jupiter.api.Test;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class DBGameDAOTest {
 
@@ -33,4 +44,141 @@ class DBGameDAOTest {
     @Test
     void updateUsername() {
     }
-}
\ No newline at end of file
+
+    /**
+     * @return a cleared DAO, skipping the test where no database is configured
+     */
+    private static DBGameDAO games() throws DataAccessException {
+        assumeTrue(DBGameDAOTest.class.getClassLoader().getResource("db.properties") != null,
+                "no database configured in db.properties");
+        DBGameDAO games = new DBGameDAO();
+        games.clear();
+        return games;
+    }
+
+    /**
+     * Plays the moves one at a time, updating the stored game after each as the server does.
+     */
+    private static void play(DBGameDAO games, int id, ChessGame game, String... moves)
+            throws InvalidMoveException, DataAccessException {
+        for (String move : moves) {
+            game.makeMove(ChessMove.fromUci(move));
+            assertTrue(games.updateGame(id, game));
+        }
+    }
+
+    private static int[] plies(int gameID) throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             var query = conn.prepareStatement("""
+                     SELECT snapshot_ply, (SELECT COUNT(*) FROM game_moves WHERE gameid = ?)
+                     FROM game_data WHERE gameid = ?""")) {
+            query.setInt(1, gameID);
+            query.setInt(2, gameID);
+            var results = query.executeQuery();
+            assertTrue(results.next());
+            return new int[]{results.getInt(1), results.getInt(2)};
+        }
+    }
+
+    @Test
+    void logsMovesAndReplaysThemOnRead() throws Exception {
+        DBGameDAO games = games();
+        ChessGame game = new ChessGame();
+        int id = games.newGame(new GameData(0, null, null, "logged", game));
+        play(games, id, game, "e2e4", "e7e5", "g1f3", "b8c6", "f1b5");
+
+        assertArrayEquals(new int[]{0, 5}, plies(id));
+        ChessGame read = games.get(id).game();
+        assertEquals(game.toFen(), read.toFen());
+        assertEquals(game.getMoveHistory(), read.getMoveHistory());
+        assertEquals(game.toFen(), games.getGameList().iterator().next().game().toFen());
+    }
+
+    @Test
+    void snapshotsEverySnapshotPlies() throws Exception {
+        DBGameDAO games = games();
+        ChessGame game = new ChessGame();
+        int id = games.newGame(new GameData(0, null, null, "shuffled", game));
+        List<String> shuffle = List.of("g1f3", "g8f6", "f3g1", "f6g8");
+        for (int ply = 0; ply < DBGameDAO.SNAPSHOT_PLIES + 2; ply++) {
+            play(games, id, game, shuffle.get(ply % shuffle.size()));
+        }
+
+        assertEquals(DBGameDAO.SNAPSHOT_PLIES, plies(id)[0]);
+        assertEquals(DBGameDAO.SNAPSHOT_PLIES + 2, plies(id)[1]);
+        assertEquals(game.toFen(), games.get(id).game().toFen());
+    }
+
+    @Test
+    void snapshotsWhenTheGameEnds() throws Exception {
+        DBGameDAO games = games();
+        ChessGame game = new ChessGame();
+        int id = games.newGame(new GameData(0, null, null, "fools mate", game));
+        play(games, id, game, "f2f3", "e7e5", "g2g4", "d8h4");
+
+        assertArrayEquals(new int[]{4, 4}, plies(id));
+        assertEquals(ChessGame.GameStatus.BLACK_WON, games.getGameSummaries().iterator().next().status());
+        assertEquals(ChessGame.GameStatus.BLACK_WON, games.get(id).game().getStatus());
+    }
+
+    @Test
+    void rejectsAnOlderStateOfTheGame() throws Exception {
+        DBGameDAO games = games();
+        ChessGame game = new ChessGame();
+        int id = games.newGame(new GameData(0, null, null, "late", game));
+        play(games, id, game, "d2d4");
+        ChessGame older = ChessGame.fromFen(game.toFen());
+        play(games, id, game, "d7d5", "c2c4");
+
+        assertFalse(games.updateGame(id, older));
+        assertArrayEquals(new int[]{0, 3}, plies(id));
+        assertEquals(game.toFen(), games.get(id).game().toFen());
+    }
+
+    @Test
+    void reportsWhichGamesOfABatchWereRejected() throws Exception {
+        DBGameDAO games = games();
+        ChessGame behind = new ChessGame();
+        int behindID = games.newGame(new GameData(0, null, null, "behind", behind));
+        ChessGame ahead = new ChessGame();
+        int aheadID = games.newGame(new GameData(0, null, null, "ahead", ahead));
+        ChessGame older = ChessGame.fromFen(behind.toFen());
+        play(games, behindID, behind, "e2e4");
+        ahead.makeMove(ChessMove.fromUci("d2d4"));
+
+        assertEquals(Set.of(behindID), games.updateGames(Map.of(behindID, older, aheadID, ahead)));
+        assertEquals(behind.toFen(), games.get(behindID).game().toFen());
+        assertEquals(ahead.toFen(), games.get(aheadID).game().toFen());
+    }
+
+    @Test
+    void replaysOntoAFenSnapshot() throws Exception {
+        DBGameDAO games = games();
+        int id = games.newGame(new GameData(0, null, null, "fen", new ChessGame()));
+        ChessGame snapshot = ChessGame.fromFen("rnbqkb1r/pppppppp/5n2/8/8/5N2/PPPPPPPP/RNBQKB1R w KQkq - 6 4");
+        try (Connection conn = DatabaseManager.getConnection();
+             var store = conn.prepareStatement(
+                     "UPDATE game_data SET game=NULL, fen=?, status='PENDING', snapshot_ply=6 WHERE gameid=?");
+             var log = conn.prepareStatement("INSERT INTO game_moves (gameid, ply, move) VALUES (?, ?, ?)")) {
+            store.setString(1, snapshot.toFen());
+            store.setInt(2, id);
+            store.executeUpdate();
+            int ply = 7;
+            for (String move : List.of("f3g1", "f6g8")) {
+                log.setInt(1, id);
+                log.setInt(2, ply++);
+                log.setInt(3, ChessMove.fromUci(move).toPacked());
+                log.executeUpdate();
+            }
+        }
+
+        ChessGame read = games.get(id).game();
+        assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 8 5", read.toFen());
+        assertEquals(List.of(ChessMove.fromUci("f3g1"), ChessMove.fromUci("f6g8")), read.getMoveHistory());
+
+        // the game read back carries on logging from where the log left off
+        play(games, id, read, "e2e4");
+        assertArrayEquals(new int[]{6, 3}, plies(id));
+        assertEquals(read.toFen(), games.get(id).game().toFen());
+    }
+}
@@ -0,0 +1,74 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveLogTest {
+
+    private static final int SNAPSHOT_PLIES = 4;
+
+    private static void play(ChessGame game, String... moves) throws InvalidMoveException {
+        for (String move : moves) {
+            game.makeMove(ChessMove.fromUci(move));
+        }
+    }
+
+    @Test
+    void appendsOnlyTheNewMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5", "g1f3");
+        assertEquals(new MoveLog.Update(1, 3, false), MoveLog.plan(game, 0, 0, null, SNAPSHOT_PLIES));
+        assertEquals(new MoveLog.Update(3, 3, false), MoveLog.plan(game, 0, 2, null, SNAPSHOT_PLIES));
+        // nothing new, so nothing to write
+        assertEquals(new MoveLog.Update(4, 3, false), MoveLog.plan(game, 0, 3, null, SNAPSHOT_PLIES));
+    }
+
+    @Test
+    void snapshotsEverySnapshotPlies() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3", "g8f6", "f3g1");
+        assertFalse(MoveLog.plan(game, 0, 2, null, SNAPSHOT_PLIES).snapshot());
+        play(game, "f6g8");
+        assertEquals(new MoveLog.Update(4, 4, true), MoveLog.plan(game, 0, 3, null, SNAPSHOT_PLIES));
+        play(game, "g1f3");
+        assertFalse(MoveLog.plan(game, 4, 4, null, SNAPSHOT_PLIES).snapshot());
+    }
+
+    @Test
+    void snapshotsOnceWhenTheGameEnds() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "f2f3", "e7e5", "g2g4", "d8h4");
+        assertEquals(ChessGame.GameStatus.BLACK_WON, game.getStatus());
+        assertTrue(MoveLog.plan(game, 0, 3, ChessGame.GameStatus.PENDING, 10).snapshot());
+        assertEquals(new MoveLog.Update(5, 4, false),
+                MoveLog.plan(game, 4, 4, ChessGame.GameStatus.BLACK_WON, 10));
+
+        ChessGame resigned = new ChessGame();
+        play(resigned, "e2e4");
+        resigned.resign(ChessGame.TeamColor.BLACK);
+        assertEquals(new MoveLog.Update(2, 1, true),
+                MoveLog.plan(resigned, 0, 1, ChessGame.GameStatus.PENDING, 10));
+    }
+
+    @Test
+    void rejectsGamesBehindTheLog() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "d2d4", "d7d5");
+        assertNull(MoveLog.plan(game, 0, 3, null, SNAPSHOT_PLIES));
+    }
+
+    @Test
+    void snapshotsWhenTheHistoryDoesNotReachTheLog() throws InvalidMoveException {
+        // read from a FEN snapshot at ply 6, so the game's history only holds the moves replayed after it
+        ChessGame game = ChessGame.fromFen("rnbqkb1r/pppppppp/5n2/8/8/5N2/PPPPPPPP/RNBQKB1R w KQkq - 6 4");
+        play(game, "f3g1");
+        assertEquals(1, game.getMoveHistory().size());
+        assertEquals(new MoveLog.Update(7, 7, false), MoveLog.plan(game, 6, 6, null, 10));
+        // a log that stops short of the moves the game remembers can't be extended, so the game is snapshot whole
+        assertEquals(new MoveLog.Update(7, 7, true), MoveLog.plan(game, 2, 5, null, 10));
+    }
+}
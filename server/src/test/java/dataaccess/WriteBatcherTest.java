@@ -0,0 +1,202 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBatcherTest {
+
+    /**
+     * Stands in for MySQL, recording the batches sent to it and which of them were committed.
+     */
+    private static final class FakeDatabase {
+        final List<List<String>> batches = new ArrayList<>();
+        final List<String> committed = new ArrayList<>();
+        final List<String> uncommitted = new ArrayList<>();
+        int commits;
+
+        synchronized Connection connect() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        synchronized (this) {
+                            return switch (method.getName()) {
+                                case "setAutoCommit", "close" -> null;
+                                case "commit" -> {
+                                    commits++;
+                                    committed.addAll(uncommitted);
+                                    uncommitted.clear();
+                                    yield null;
+                                }
+                                case "rollback" -> {
+                                    uncommitted.clear();
+                                    yield null;
+                                }
+                                case "prepareStatement" -> statement();
+                                default -> throw new UnsupportedOperationException(method.getName());
+                            };
+                        }
+                    });
+        }
+
+        private PreparedStatement statement() {
+            List<String> batch = new ArrayList<>();
+            String[] value = new String[1];
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        synchronized (this) {
+                            return switch (method.getName()) {
+                                case "setString" -> value[0] = (String) args[1];
+                                case "addBatch" -> batch.add(value[0]);
+                                case "executeBatch" -> {
+                                    batches.add(List.copyOf(batch));
+                                    if (batch.contains("bad")) {
+                                        throw new BatchUpdateException("Duplicate entry", "23000", 1062, new int[0]);
+                                    }
+                                    uncommitted.addAll(batch);
+                                    int[] counts = new int[batch.size()];
+                                    Arrays.fill(counts, 1);
+                                    batch.clear();
+                                    yield counts;
+                                }
+                                case "close" -> null;
+                                default -> throw new UnsupportedOperationException(method.getName());
+                            };
+                        }
+                    });
+        }
+    }
+
+    private static CompletableFuture<Integer> insert(WriteBatcher batcher, String value) {
+        return batcher.submit(0, "INSERT INTO t (v) VALUES (?)", statement -> statement.setString(1, value));
+    }
+
+    /**
+     * Keeps the key's writer busy until the returned latch is counted down, so the writes queued meanwhile wait for
+     * it together.
+     */
+    private static CountDownLatch hold(WriteBatcher batcher, Object key) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        batcher.submit(key, conn -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    void commitsWritesArrivingTogetherAsOneBatch() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        WriteBatcher batcher = new WriteBatcher(database::connect, 1, 200, 256);
+        CountDownLatch release = hold(batcher, 0);
+        List<CompletableFuture<Integer>> done = new ArrayList<>();
+        for (String value : List.of("a", "b", "c")) {
+            done.add(insert(batcher, value));
+        }
+        release.countDown();
+        for (CompletableFuture<Integer> write : done) {
+            assertEquals(1, write.get());
+        }
+        assertEquals(List.of(List.of("a", "b", "c")), database.batches);
+        assertEquals(List.of("a", "b", "c"), database.committed);
+        // the held write's commit, then one for the three together
+        assertEquals(2, database.commits);
+        assertEquals(new WriteBatcher.Stats(4, 2, 2, 0), batcher.stats());
+        batcher.close();
+    }
+
+    @Test
+    void keepsWritesInOrderAroundWork() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        WriteBatcher batcher = new WriteBatcher(database::connect, 1, 200, 256);
+        CountDownLatch release = hold(batcher, 0);
+        List<String> seen = new ArrayList<>();
+        insert(batcher, "a");
+        batcher.submit(0, conn -> seen.addAll(database.uncommitted));
+        CompletableFuture<Integer> last = insert(batcher, "b");
+        release.countDown();
+        last.get();
+        assertEquals(List.of("a"), seen);
+        assertEquals(List.of(List.of("a"), List.of("b")), database.batches);
+        assertEquals(2, database.commits);
+        batcher.close();
+    }
+
+    @Test
+    void failsOnlyTheFailingWrite() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        WriteBatcher batcher = new WriteBatcher(database::connect, 1, 200, 256);
+        CountDownLatch release = hold(batcher, 0);
+        CompletableFuture<Integer> good = insert(batcher, "good");
+        CompletableFuture<Integer> bad = insert(batcher, "bad");
+        CompletableFuture<Integer> alsoGood = insert(batcher, "also good");
+        release.countDown();
+
+        assertEquals(1, good.get());
+        assertEquals(1, alsoGood.get());
+        ExecutionException failure = assertThrows(ExecutionException.class, bad::get);
+        assertEquals(1062, ((SQLException) failure.getCause()).getErrorCode());
+        assertEquals(List.of("good", "also good"), database.committed);
+        assertEquals(3, batcher.stats().retried());
+        batcher.close();
+    }
+
+    @Test
+    void limitsTheBatchSize() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        WriteBatcher batcher = new WriteBatcher(database::connect, 1, 200, 2);
+        List<CompletableFuture<Integer>> done = new ArrayList<>();
+        for (String value : List.of("a", "b", "c", "d")) {
+            done.add(insert(batcher, value));
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get();
+        assertTrue(database.batches.stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(List.of("a", "b", "c", "d"), database.committed);
+        batcher.close();
+
+        assertThrows(DataAccessException.class, () -> batcher.write(0, "INSERT INTO t (v) VALUES (?)",
+                statement -> statement.setString(1, "late")));
+    }
+
+    @Test
+    void doesALoneWriteWithoutWaitingOutTheWindow() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        WriteBatcher batcher = new WriteBatcher(database::connect, 1, 60_000, 256);
+        assertEquals(1, insert(batcher, "a").get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a"), database.committed);
+        batcher.close();
+    }
+
+    @Test
+    void writesOtherKeysWhileOneWriterIsBusy() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        WriteBatcher batcher = new WriteBatcher(database::connect, 2, 200, 256);
+        CountDownLatch release = hold(batcher, 1);
+        assertEquals(1, insert(batcher, "a").get(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> behind = batcher.submit(1, "INSERT INTO t (v) VALUES (?)",
+                statement -> statement.setString(1, "b"));
+        assertFalse(behind.isDone());
+        release.countDown();
+        assertEquals(1, behind.get());
+        assertEquals(List.of("a", "b"), database.committed);
+        batcher.close();
+    }
+}
@@ -0,0 +1,19 @@
+package server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BroadcastStatsTest {
+
+    @Test
+    void averagesPerBroadcast() {
+        BroadcastStats stats = new BroadcastStats();
+        Assertions.assertEquals(new BroadcastStats.Snapshot(0, 0, 0, 0, 0, 0), stats.snapshot());
+        stats.record(10, 4_000, 30_000);
+        stats.record(2, 2_000, 10_000);
+        stats.recordDropped();
+        stats.recordDropped();
+        stats.recordSlowConsumer();
+        Assertions.assertEquals(new BroadcastStats.Snapshot(2, 12, 3, 20, 2, 1), stats.snapshot());
+    }
+}
@@ -0,0 +1,99 @@
+package server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class GameActorTest {
+
+    @Test
+    void runsCommandsInOrderOneAtATime() throws InterruptedException {
+        GameActor actor = GameActor.of(-1);
+        List<Integer> ran = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int command = i;
+            actor.submit(() -> {
+                Assertions.assertEquals(1, running.incrementAndGet());
+                ran.add(command);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i, ran.get(i));
+        }
+    }
+
+    @Test
+    void keepsRunningAfterAFailedCommand() throws InterruptedException {
+        GameActor actor = GameActor.of(-2);
+        CountDownLatch done = new CountDownLatch(1);
+        actor.submit(() -> {
+            throw new IllegalStateException("test");
+        });
+        actor.submit(done::countDown);
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void commandsFromManyThreadsAllRun() throws InterruptedException {
+        GameActor actor = GameActor.of(-3);
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(8 * 200);
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int sender = t;
+            senders.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 200; i++) {
+                    int command = sender * 200 + i;
+                    actor.submit(() -> {
+                        ran.add(command);
+                        done.countDown();
+                    });
+                }
+            }));
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(8 * 200, ran.size());
+        // each sender's commands still run in the order it sent them
+        for (int t = 0; t < 8; t++) {
+            int sender = t;
+            List<Integer> own = ran.stream().filter(command -> command / 200 == sender).toList();
+            for (int i = 0; i < 200; i++) {
+                Assertions.assertEquals(sender * 200 + i, own.get(i));
+            }
+        }
+    }
+
+    @Test
+    void retiredActorPassesCommandsOnToItsReplacement() throws InterruptedException {
+        GameActor actor = GameActor.of(-4);
+        CountDownLatch retired = new CountDownLatch(1);
+        actor.submit(() -> {
+            actor.retire();
+            retired.countDown();
+        });
+        Assertions.assertTrue(retired.await(10, TimeUnit.SECONDS));
+        GameActor replacement = GameActor.of(-4);
+        Assertions.assertNotSame(actor, replacement);
+
+        // a command sent to the old actor by someone still holding it runs on the replacement
+        CountDownLatch ran = new CountDownLatch(2);
+        actor.submit(ran::countDown);
+        replacement.submit(ran::countDown);
+        Assertions.assertTrue(ran.await(10, TimeUnit.SECONDS));
+        Assertions.assertSame(replacement, GameActor.of(-4));
+    }
+}
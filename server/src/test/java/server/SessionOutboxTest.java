@@ -0,0 +1,102 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static websocket.messages.ServerMessage.ServerMessageType.*;
+
+class SessionOutboxTest {
+
+    /**
+     * A session whose writes only complete when the test says so, as with a client that reads slowly.
+     */
+    private static final class SlowSession {
+        final List<String> written = new ArrayList<>();
+        final List<WriteCallback> pending = new ArrayList<>();
+        boolean open = true;
+        final Session session;
+
+        SlowSession() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        Assertions.assertEquals("sendString", method.getName());
+                        written.add((String) args[0]);
+                        pending.add((WriteCallback) args[1]);
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getRemote" -> remote;
+                        case "isOpen" -> open;
+                        case "close" -> {
+                            open = false;
+                            yield null;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        void finishWrite() {
+            pending.removeFirst().writeSuccess();
+        }
+    }
+
+    @Test
+    void writesOneAtATimeInOrder() {
+        SlowSession client = new SlowSession();
+        SessionOutbox outbox = new SessionOutbox(client.session, 8, SessionOutbox.SlowConsumerPolicy.DISCONNECT,
+                new BroadcastStats());
+        outbox.send("a", NOTIFICATION);
+        outbox.send("b", LOAD_GAME);
+        outbox.send("c", NOTIFICATION);
+        Assertions.assertEquals(List.of("a"), client.written);
+        client.finishWrite();
+        client.finishWrite();
+        Assertions.assertEquals(List.of("a", "b", "c"), client.written);
+        client.finishWrite();
+        outbox.send("d", ERROR);
+        Assertions.assertEquals(List.of("a", "b", "c", "d"), client.written);
+    }
+
+    @Test
+    void newerGamesReplaceWaitingOnes() {
+        SlowSession client = new SlowSession();
+        BroadcastStats stats = new BroadcastStats();
+        SessionOutbox outbox = new SessionOutbox(client.session, 3, SessionOutbox.SlowConsumerPolicy.DROP_STALE_GAMES,
+                stats);
+        outbox.send("game 1", LOAD_GAME);
+        for (int i = 2; i <= 10; i++) {
+            outbox.send("game " + i, LOAD_GAME);
+        }
+        outbox.send("note", NOTIFICATION);
+        while (!client.pending.isEmpty()) {
+            client.finishWrite();
+        }
+        Assertions.assertEquals(List.of("game 1", "game 10", "note"), client.written);
+        Assertions.assertEquals(8, stats.snapshot().droppedMessages());
+        Assertions.assertTrue(client.open);
+    }
+
+    @Test
+    void fullQueueDisconnects() {
+        SlowSession client = new SlowSession();
+        BroadcastStats stats = new BroadcastStats();
+        SessionOutbox outbox = new SessionOutbox(client.session, 2, SessionOutbox.SlowConsumerPolicy.DISCONNECT,
+                stats);
+        for (int i = 1; i <= 4; i++) {
+            outbox.send("game " + i, LOAD_GAME);
+        }
+        Assertions.assertFalse(client.open);
+        Assertions.assertEquals(1, stats.snapshot().slowConsumerDisconnects());
+        client.finishWrite();
+        outbox.send("late", NOTIFICATION);
+        Assertions.assertEquals(List.of("game 1"), client.written);
+    }
+}
@@ -3,8 +3,12 @@ package service;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
 import dataaccess.*;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -78,11 +82,58 @@ class GameServiceTest {
     @Test
     void listGamesTest() throws DataAccessException {
         List<Integer> gameIDs = populateGames();
-        Collection<GameData> games = service.listGames();
+        Collection<GameSummary> games = service.listGames();
         assert gameIDs.size() == A_FEW_NAMES.length;
         assert games.size() == gameIDs.size();
     }
 
+    @Test
+    void listGamePagesTest() throws DataAccessException {
+        List<Integer> gameIDs = populateGames();
+        List<Integer> listed = new ArrayList<>();
+        GameQuery query = new GameQuery(0, 2, false, null, null, null);
+        GamePage page = service.listGames(query);
+        listed.addAll(page.games().stream().map(GameSummary::gameID).toList());
+        while (page.next() != null) {
+            assert page.games().size() == 2;
+            page = service.listGames(query.after(page.next()));
+            listed.addAll(page.games().stream().map(GameSummary::gameID).toList());
+        }
+        assert listed.equals(gameIDs);
+    }
+
+    @Test
+    void forEachGameTest() throws DataAccessException {
+        populateGames();
+        GameQuery query = new GameQuery(0, 3, false, null, null, null);
+        List<GameSummary> visited = new ArrayList<>();
+        Integer next = service.forEachGame(query, visited::add);
+        GamePage page = service.listGames(query);
+        assert visited.equals(page.games());
+        assert next.equals(page.next());
+    }
+
+    @Test
+    void filterListGamesTest() throws DataAccessException, InvalidMoveException {
+        List<Integer> gameIDs = populateGames();
+        addGamePlayers(gameIDs.get(1));
+        GameData finished = service.getGame(gameIDs.get(2));
+        finished.game().resign(ChessGame.TeamColor.WHITE);
+        service.updateGame(finished.gameID(), finished.game());
+
+        GamePage open = service.listGames(new GameQuery(0, 10, true, null, null, null));
+        assert open.games().size() == gameIDs.size() - 1;
+        GamePage playing = service.listGames(new GameQuery(0, 10, false, A_FEW_NAMES[0], null, null));
+        assert playing.games().size() == 1 && playing.games().getFirst().gameID() == gameIDs.get(1);
+        GamePage over = service.listGames(new GameQuery(0, 10, false, null, GameQuery.Progress.FINISHED, null));
+        assert over.games().size() == 1 && over.games().getFirst().gameID() == gameIDs.get(2);
+        GamePage going = service.listGames(new GameQuery(0, 10, false, null, GameQuery.Progress.IN_PROGRESS, null));
+        assert going.games().size() == gameIDs.size() - 1;
+        GamePage named = service.listGames(new GameQuery(0, 10, false, null, null, "jack"));
+        assert named.games().stream().map(GameSummary::gameName).toList().equals(List.of("jackhammer", "Jackson 5"));
+        assert named.next() == null;
+    }
+
     @Test
     void emptyListGamesTest() throws DataAccessException {
         assert service.listGames().isEmpty();
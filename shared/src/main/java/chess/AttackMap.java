@@ -0,0 +1,130 @@
+package chess;
+
+/**
+ * Check and pin information for one team in one board position, computed once and reused to judge every candidate
+ * move in that position. Most moves are then accepted or rejected with a few mask tests; only en passant, whose capture
+ * can uncover an attack along the rank, still plays the move out.
+ */
+final class AttackMap {
+
+    private final ChessBoard board;
+    private final BitBoard bits;
+    private final ChessGame.TeamColor color;
+    private final int version;
+    private final int king;
+    private final long checkers;
+    private long pinned = -1;
+
+    private AttackMap(ChessBoard board, ChessGame.TeamColor color) {
+        this.board = board;
+        this.bits = board.bitBoard();
+        this.color = color;
+        this.version = board.version();
+        this.king = board.kingSquare(color);
+        this.checkers = king < 0 ? 0 : bits.attackers(king, color.other(), bits.occupancy());
+    }
+
+    static AttackMap of(ChessBoard board, ChessGame.TeamColor color) {
+        return new AttackMap(board, color);
+    }
+
+    /**
+     * @return whether this map still describes board with color to move, i.e. nothing has been moved since
+     */
+    boolean isCurrent(ChessBoard board, ChessGame.TeamColor color) {
+        return this.board == board && this.color == color && version == board.version();
+    }
+
+    boolean inCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * @return the squares of the enemy pieces giving check
+     */
+    long checkers() {
+        return checkers;
+    }
+
+    /**
+     * @return the squares of this team's pieces that are the only thing between their king and an enemy slider
+     */
+    long pinned() {
+        if (pinned == -1) {
+            pinned = computePinned();
+        }
+        return pinned;
+    }
+
+    private long computePinned() {
+        if (king < 0) {
+            return 0;
+        }
+        ChessGame.TeamColor enemy = color.other();
+        long queens = bits.pieces(enemy, ChessPiece.PieceType.QUEEN);
+        long snipers = Attacks.rook(king, 0) & (bits.pieces(enemy, ChessPiece.PieceType.ROOK) | queens)
+                | Attacks.bishop(king, 0) & (bits.pieces(enemy, ChessPiece.PieceType.BISHOP) | queens);
+        long occupied = bits.occupancy();
+        long result = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                result |= blockers & bits.occupancy(color);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param move a pseudo-legal move of one of this team's pieces
+     * @return whether playing move leaves this team's king out of check
+     */
+    boolean isLegal(ChessMove move) {
+        return isLegal(board.encode(move));
+    }
+
+    /**
+     * @param move a pseudo-legal packed {@link Move} of one of this team's pieces
+     * @return whether playing move leaves this team's king out of check
+     */
+    boolean isLegal(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessGame.TeamColor enemy = color.other();
+        if (from == king) {
+            if (Move.kind(move) == Move.CASTLE) {
+                return checkers == 0 && !bits.isAttacked(from + Integer.signum((to & 7) - (from & 7)), enemy)
+                        && !bits.isAttacked(to, enemy);
+            }
+            // the king must not be able to hide behind itself from a slider
+            return bits.attackers(to, enemy, bits.occupancy() & ~BitBoard.bit(from)) == 0;
+        }
+        if (Long.bitCount(checkers) > 1) {
+            return false;
+        }
+        if (Move.kind(move) == Move.EN_PASSANT) {
+            return enPassantIsLegal(move);
+        }
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            if ((BitBoard.bit(to) & (checkers | Attacks.between(king, checker))) == 0) {
+                return false;
+            }
+        }
+        return (pinned() & BitBoard.bit(from)) == 0 || (Attacks.line(king, from) & BitBoard.bit(to)) != 0;
+    }
+
+    private boolean enPassantIsLegal(int move) {
+        if (king < 0) {
+            return true;
+        }
+        board.makeMove(move);
+        try {
+            return !bits.isAttacked(king, color.other());
+        } finally {
+            board.unmakeMove();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Precomputed attack sets for every square, indexed the same way as {@link BitBoard}. King, knight and pawn attacks
+ * are plain table lookups; rook and bishop rays use magic bitboards, so a slider's attacks against any occupancy cost
+ * one multiply, one shift and one array read.
+ * <p>
+ * Magic numbers are found when the class loads, from a fixed seed, so the tables are the same on every run.
+ */
+final class Attacks {
+
+    private static final long[] KING = leaperTable(ChessPiece.PieceType.KING.offsets());
+    private static final long[] KNIGHT = leaperTable(ChessPiece.PieceType.KNIGHT.offsets());
+    private static final long[][] PAWN = new long[2][BitBoard.SQUARES];
+    private static final Magic[] ROOK = new Magic[BitBoard.SQUARES];
+    private static final Magic[] BISHOP = new Magic[BitBoard.SQUARES];
+    private static final long[][] BETWEEN = new long[BitBoard.SQUARES][BitBoard.SQUARES];
+    private static final long[][] LINE = new long[BitBoard.SQUARES][BitBoard.SQUARES];
+
+    static {
+        for (var color : ChessGame.TeamColor.values()) {
+            int direction = color.pawnDirection();
+            PAWN[color.ordinal()] = leaperTable(new int[][]{{direction, -1}, {direction, 1}});
+        }
+        SplittableRandom random = new SplittableRandom(240);
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            ROOK[square] = findMagic(square, ChessPiece.PieceType.ROOK.offsets(), random);
+            BISHOP[square] = findMagic(square, ChessPiece.PieceType.BISHOP.offsets(), random);
+        }
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            for (var direction : ChessPiece.PieceType.QUEEN.offsets()) {
+                long line = BitBoard.bit(square) | slidingAttacks(square, 0, new int[][]{direction})
+                        | slidingAttacks(square, 0, new int[][]{{-direction[0], -direction[1]}});
+                long between = 0;
+                int row = BitBoard.row(square) + direction[0];
+                int column = BitBoard.column(square) + direction[1];
+                while (onBoard(row, column)) {
+                    int other = BitBoard.square(row, column);
+                    BETWEEN[square][other] = between;
+                    LINE[square][other] = line;
+                    between |= BitBoard.bit(other);
+                    row += direction[0];
+                    column += direction[1];
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    private record Magic(long mask, long magic, int shift, long[] attacks) {
+        long lookup(long occupied) {
+            return attacks[(int) (((occupied & mask) * magic) >>> shift)];
+        }
+    }
+
+    static long king(int square) {
+        return KING[square];
+    }
+
+    static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given color standing on square attacks (its diagonal captures)
+     */
+    static long pawn(ChessGame.TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    static long rook(int square, long occupied) {
+        return ROOK[square].lookup(occupied);
+    }
+
+    static long bishop(int square, long occupied) {
+        return BISHOP[square].lookup(occupied);
+    }
+
+    static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /**
+     * @return the squares strictly between two squares on a shared rank, file or diagonal; empty if they share none
+     */
+    static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return every square of the rank, file or diagonal through both squares; empty if they share none
+     */
+    static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private static long leaperTable(int square, int[][] offsets) {
+        long attacks = 0;
+        for (var offset : offsets) {
+            int row = BitBoard.row(square) + offset[0];
+            int column = BitBoard.column(square) + offset[1];
+            if (onBoard(row, column)) {
+                attacks |= BitBoard.bit(BitBoard.square(row, column));
+            }
+        }
+        return attacks;
+    }
+
+    private static long[] leaperTable(int[][] offsets) {
+        long[] table = new long[BitBoard.SQUARES];
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            table[square] = leaperTable(square, offsets);
+        }
+        return table;
+    }
+
+    private static boolean onBoard(int row, int column) {
+        return row >= 1 && row <= 8 && column >= 1 && column <= 8;
+    }
+
+    /**
+     * Walks each ray from square until it leaves the board or hits an occupied square, which is included.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (var direction : directions) {
+            int row = BitBoard.row(square) + direction[0];
+            int column = BitBoard.column(square) + direction[1];
+            while (onBoard(row, column)) {
+                long bit = BitBoard.bit(BitBoard.square(row, column));
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * The squares whose occupancy can change a slider's attacks from square: every ray square except the last one
+     * before the edge, since a piece there never blocks anything further out.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0;
+        for (var direction : directions) {
+            int row = BitBoard.row(square) + direction[0];
+            int column = BitBoard.column(square) + direction[1];
+            while (onBoard(row + direction[0], column + direction[1])) {
+                mask |= BitBoard.bit(BitBoard.square(row, column));
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static Magic findMagic(int square, int[][] directions, SplittableRandom random) {
+        long mask = relevantMask(square, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] reference = new long[size];
+        long subset = 0;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            reference[i] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] attacks = new long[size];
+        int[] filledOnAttempt = new int[size];
+        for (int attempt = 1; ; attempt++) {
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (filledOnAttempt[index] != attempt) {
+                    filledOnAttempt[index] = attempt;
+                    attacks[index] = reference[i];
+                } else {
+                    collision = attacks[index] != reference[i];
+                }
+            }
+            if (!collision) {
+                return new Magic(mask, magic, 64 - bits, attacks);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A bitboard view of the pieces on a {@link ChessBoard}: one 64-bit set per team and piece type, plus occupancy masks
+ * for each team and for the whole board.
+ * <p>
+ * Squares are indexed from a1 = 0 to h8 = 63, so the position {@code (row, col)} is bit {@code (row - 1) * 8 + col - 1}.
+ */
+final class BitBoard {
+
+    static final int SQUARES = 64;
+    private static final int TYPES = ChessPiece.PieceType.values().length;
+
+    private final long[] pieces = new long[2 * TYPES];
+    private final long[] occupancy = new long[2];
+
+    static int square(int row, int col) {
+        return (row - 1) * 8 + col - 1;
+    }
+
+    static int square(ChessPosition position) {
+        return position.square();
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static ChessPosition position(int square) {
+        return ChessPosition.of(square);
+    }
+
+    static long bit(int square) {
+        return 1L << square;
+    }
+
+    static int index(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * TYPES + type.ordinal();
+    }
+
+    void add(int square, ChessPiece piece) {
+        long bit = bit(square);
+        pieces[index(piece.getTeamColor(), piece.getPieceType())] |= bit;
+        occupancy[piece.getTeamColor().ordinal()] |= bit;
+    }
+
+    void remove(int square, ChessPiece piece) {
+        long mask = ~bit(square);
+        pieces[index(piece.getTeamColor(), piece.getPieceType())] &= mask;
+        occupancy[piece.getTeamColor().ordinal()] &= mask;
+    }
+
+    void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(occupancy, 0L);
+    }
+
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[index(color, type)];
+    }
+
+    long occupancy(ChessGame.TeamColor color) {
+        return occupancy[color.ordinal()];
+    }
+
+    long occupancy() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    /**
+     * Finds the pieces of one team attacking a square by looking outward from that square: a knight of that team a
+     * knight's move away attacks it, a rook or queen on an open rook ray does, and so on.
+     *
+     * @param occupied the occupancy that blocks sliding pieces, normally {@link #occupancy()}
+     * @return the squares of by's pieces that attack square
+     */
+    long attackers(int square, ChessGame.TeamColor by, long occupied) {
+        long queens = pieces(by, ChessPiece.PieceType.QUEEN);
+        return Attacks.pawn(by.other(), square) & pieces(by, ChessPiece.PieceType.PAWN)
+                | Attacks.knight(square) & pieces(by, ChessPiece.PieceType.KNIGHT)
+                | Attacks.king(square) & pieces(by, ChessPiece.PieceType.KING)
+                | Attacks.rook(square, occupied) & (pieces(by, ChessPiece.PieceType.ROOK) | queens)
+                | Attacks.bishop(square, occupied) & (pieces(by, ChessPiece.PieceType.BISHOP) | queens);
+    }
+
+    boolean isAttacked(int square, ChessGame.TeamColor by) {
+        return attackers(square, by, occupancy()) != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Arrays.equals(pieces, ((BitBoard) o).pieces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(pieces);
+    }
+}
@@ -0,0 +1,311 @@
+package chess;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact binary encoding of a game, for storing games in binary columns, sending them in binary frames and
+ * archiving finished games. It holds the same position FEN does plus the game status, in 29 bytes for the starting
+ * position, and the game's move history if it has one:
+ * <ul>
+ *     <li>a format version byte, currently {@value #VERSION}</li>
+ *     <li>a flags byte: bit 0 set when black is to move, bits 1-4 the castling rights as
+ *     {@link ChessBoard#castlingRights()} gives them, bit 5 set when a move history follows the position, and bits 6-7
+ *     reserved for later additions</li>
+ *     <li>a byte with the status ordinal in the high four bits, and in the low four the column (1 to 8) of a pawn that
+ *     can be captured en passant, or 0</li>
+ *     <li>the occupied squares as a 64-bit bitboard, a1 in the lowest bit, most significant byte first</li>
+ *     <li>a four-bit piece code for each occupied square from a1 up, two to a byte with the lower square in the low
+ *     bits: the color ordinal times six plus the type ordinal</li>
+ *     <li>the halfmove clock and the fullmove number as unsigned varints, seven bits to a byte, low bits first</li>
+ *     <li>if there is a move history, the position it starts from in this same format without a history, then the
+ *     number of moves and each move packed into an int, as varints: start square, end square shifted left 6,
+ *     promotion piece ordinal (0 for none) shifted left 12, and 1 for castling, 2 for en passant or 3 for a pawn's
+ *     two-square move shifted left 15</li>
+ * </ul>
+ * Encoding and decoding work directly on the caller's buffer, starting at its position and leaving it just past the
+ * game, whatever byte order the buffer is set to.
+ */
+public final class ChessBinary {
+
+    public static final int VERSION = 1;
+    /**
+     * The most bytes any game without a move history can take, with a piece on every square and the largest move
+     * counters.
+     */
+    public static final int MAX_SIZE = 3 + 8 + 32 + 5 + 5;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int CASTLING_SHIFT = 1;
+    private static final int HAS_MOVES = 0x20;
+    private static final int RESERVED_FLAGS = 0xC0;
+    // a packed move has 17 bits, so takes at most three varint bytes
+    private static final int MAX_MOVE_SIZE = 3;
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.GameStatus[] STATUSES = ChessGame.GameStatus.values();
+
+    private ChessBinary() {
+    }
+
+    /**
+     * @return the most bytes the game can take, at most {@link #MAX_SIZE} if it has no move history
+     */
+    public static int maxSize(ChessGame game) {
+        int moves = game.historySize();
+        return moves == 0 ? MAX_SIZE : 2 * MAX_SIZE + 5 + moves * MAX_MOVE_SIZE;
+    }
+
+    /**
+     * Writes the game into out at its position, advancing it past the game.
+     *
+     * @throws java.nio.BufferOverflowException if out has fewer than the game's bytes remaining; at most
+     *                                          {@link #maxSize} are ever needed
+     */
+    public static void encode(ChessGame game, ByteBuffer out) {
+        int moves = game.historySize();
+        encodePosition(game, moves > 0 ? HAS_MOVES : 0, out);
+        if (moves > 0) {
+            // kept already encoded, so the start position is copied rather than set up on a board again
+            out.put(game.startPosition());
+            putVarint(out, moves);
+            for (int i = 0; i < moves; i++) {
+                putVarint(out, game.historyMove(i));
+            }
+        }
+    }
+
+    private static void encodePosition(ChessGame game, int flags, ByteBuffer out) {
+        ChessBoard board = game.getBoard();
+        flags |= board.castlingRights() << CASTLING_SHIFT;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        out.put((byte) VERSION);
+        out.put((byte) flags);
+        out.put((byte) (game.getStatus().ordinal() << 4 | board.enPassantColumn() + 1));
+
+        long occupied = board.bitBoard().occupancy();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.put((byte) (occupied >>> shift));
+        }
+        int pending = -1;
+        for (long squares = occupied; squares != 0; squares &= squares - 1) {
+            ChessPiece piece = board.getPiece(Long.numberOfTrailingZeros(squares));
+            int code = piece.getTeamColor().ordinal() * TYPES.length + piece.getPieceType().ordinal();
+            if (pending < 0) {
+                pending = code;
+            } else {
+                out.put((byte) (code << 4 | pending));
+                pending = -1;
+            }
+        }
+        if (pending >= 0) {
+            out.put((byte) pending);
+        }
+
+        putVarint(out, game.getHalfmoveClock());
+        putVarint(out, game.getFullmoveNumber());
+    }
+
+    /**
+     * Reads a game written by {@link #encode} from in at its position, advancing it past the game.
+     *
+     * @throws IllegalArgumentException if the bytes are not a game in a format version this class reads
+     * @throws BufferUnderflowException if in ends partway through the game
+     */
+    public static ChessGame decode(ByteBuffer in) {
+        boolean hasMoves = hasMoves(in);
+        ChessGame game = decodePosition(in);
+        if (hasMoves) {
+            if (hasMoves(in)) {
+                throw new IllegalArgumentException("The start position of a move history has a history itself");
+            }
+            byte[] startPosition = readPositionBytes(in);
+            int size = getVarint(in);
+            if (size <= 0 || size > in.remaining()) {
+                throw new IllegalArgumentException("Bad move history length " + size);
+            }
+            int[] moves = new int[size];
+            for (int i = 0; i < size; i++) {
+                moves[i] = getVarint(in);
+            }
+            game.setHistory(startPosition, moves, size);
+        }
+        return game;
+    }
+
+    /**
+     * @return whether the flags of the position starting at in's position say a move history follows it
+     */
+    private static boolean hasMoves(ByteBuffer in) {
+        return in.remaining() > 1 && (in.get(in.position() + 1) & HAS_MOVES) != 0;
+    }
+
+    /**
+     * @return the bytes of the position without a history starting at in's position, advancing in past it; only the
+     * header is checked, the rest being checked whenever the position is decoded
+     */
+    private static byte[] readPositionBytes(ByteBuffer in) {
+        int start = in.position();
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported game format version " + version);
+        }
+        int flags = in.get() & 0xFF;
+        if ((flags & RESERVED_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unsupported game format flags " + Integer.toBinaryString(flags));
+        }
+        in.get();
+        long occupied = 0;
+        for (int i = 0; i < 8; i++) {
+            occupied = occupied << 8 | in.get() & 0xFF;
+        }
+        int pieceBytes = (Long.bitCount(occupied) + 1) / 2;
+        if (pieceBytes > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        in.position(in.position() + pieceBytes);
+        getVarint(in);
+        getVarint(in);
+        byte[] bytes = new byte[in.position() - start];
+        in.get(start, bytes);
+        return bytes;
+    }
+
+    private static ChessGame decodePosition(ByteBuffer in) {
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported game format version " + version);
+        }
+        int flags = in.get() & 0xFF;
+        if ((flags & RESERVED_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unsupported game format flags " + Integer.toBinaryString(flags));
+        }
+        int state = in.get() & 0xFF;
+        int statusOrdinal = state >>> 4;
+        int enPassantColumn = state & 0xF;
+        if (statusOrdinal >= STATUSES.length || enPassantColumn > 8) {
+            throw new IllegalArgumentException("Bad game state byte " + state);
+        }
+
+        long occupied = 0;
+        for (int i = 0; i < 8; i++) {
+            occupied = occupied << 8 | in.get() & 0xFF;
+        }
+        ChessBoard board = new ChessBoard();
+        int codes = 0;
+        boolean high = false;
+        for (long squares = occupied; squares != 0; squares &= squares - 1) {
+            if (!high) {
+                codes = in.get() & 0xFF;
+            }
+            int code = high ? codes >>> 4 : codes & 0xF;
+            high = !high;
+            if (code >= COLORS.length * TYPES.length) {
+                throw new IllegalArgumentException("Bad piece code " + code);
+            }
+            ChessPiece.PieceType type = TYPES[code % TYPES.length];
+            // kings and rooks count as moved unless a castling right says otherwise, as in FEN
+            boolean moved = type == ChessPiece.PieceType.KING || type == ChessPiece.PieceType.ROOK;
+            board.addPiece(ChessPosition.of(Long.numberOfTrailingZeros(squares)),
+                    new ChessPiece(COLORS[code / TYPES.length], type, moved));
+        }
+
+        grantCastling(board, flags >>> CASTLING_SHIFT & 0xF);
+        ChessGame.TeamColor turn = (flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        if (enPassantColumn != 0) {
+            // the pawn that just moved two squares is on the fourth row from its own side
+            int pawn = (turn == ChessGame.TeamColor.WHITE ? 32 : 24) + enPassantColumn - 1;
+            if (!board.hasPawn(pawn, turn.other())) {
+                throw new IllegalArgumentException("No pawn to capture en passant on column " + enPassantColumn);
+            }
+            board.setDoublePushSquare(pawn);
+        }
+        ChessGame game = new ChessGame(turn, board);
+        game.setStatus(STATUSES[statusOrdinal]);
+        game.setMoveCounters(getVarint(in), getVarint(in));
+        return game;
+    }
+
+    /**
+     * @return the game's current position without its history, in a new array of exactly its size
+     */
+    static byte[] positionBytes(ChessGame game) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+        encodePosition(game, 0, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * @return the game encoded in a new array of exactly its size
+     */
+    public static byte[] toBytes(ChessGame game) {
+        ByteBuffer buffer = ByteBuffer.allocate(maxSize(game));
+        encode(game, buffer);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if bytes do not hold exactly one game
+     */
+    public static ChessGame fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        ChessGame game;
+        try {
+            game = decode(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Game data ends after " + bytes.length + " bytes");
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " bytes left after the game");
+        }
+        return game;
+    }
+
+    private static void grantCastling(ChessBoard board, int rights) {
+        for (int right = 0; right < 4; right++) {
+            if ((rights & 1 << right) == 0) {
+                continue;
+            }
+            // rights are white king side, white queen side, black king side, black queen side in that order
+            int homeRow = right < 2 ? 0 : 56;
+            ChessPiece king = board.getPiece(homeRow + 4);
+            ChessPiece rook = board.getPiece(homeRow + (right % 2 == 0 ? 7 : 0));
+            ChessGame.TeamColor color = right < 2 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            if (!isPiece(king, color, ChessPiece.PieceType.KING) || !isPiece(rook, color, ChessPiece.PieceType.ROOK)) {
+                throw new IllegalArgumentException("No king and rook for castling right " + (1 << right));
+            }
+            king.setHasMoved(false);
+            rook.setHasMoved(false);
+        }
+    }
+
+    private static boolean isPiece(ChessPiece piece, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return piece != null && piece.getTeamColor() == color && piece.getPieceType() == type;
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint longer than five bytes");
+    }
+}
@@ -2,7 +2,6 @@ package chess;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces. Assumes ChessPositions are 1-indexed when created.
@@ -12,7 +11,23 @@ import java.util.Objects;
  */
 public class ChessBoard {
 
+    private static final int NO_SQUARE = BitBoard.SQUARES;
+    static final int WHITE_KING_SIDE = 1, WHITE_QUEEN_SIDE = 2, BLACK_KING_SIDE = 4, BLACK_QUEEN_SIDE = 8;
+
     private final ChessPiece[][] board = new ChessPiece[8][8];
+    // bitboard mirror of board; rebuilt whenever board is replaced out from under it (e.g. by Gson)
+    private transient BitBoard bits = new BitBoard();
+    private transient ChessPiece[][] mirrored = board;
+    // bumped on every change to the pieces, so cached analysis of a position can tell when it is stale
+    private transient int version;
+    // Zobrist key of the pieces alone, kept up to date by every change to the pieces
+    private transient long pieceKey;
+    // square of a pawn that just moved two squares, whose neighbors carry en passant flags; NO_SQUARE if none
+    private transient int doublePushSquare = NO_SQUARE;
+    // undo records for makeMove: a packed int per move, plus the captured piece and the piece that moved
+    private transient int[] undoRecords = new int[32];
+    private transient ChessPiece[] undoPieces = new ChessPiece[64];
+    private transient int undoSize;
     private static final ChessPiece.PieceType[] PIECE_ORDER = new ChessPiece.PieceType[]{
             ChessPiece.PieceType.ROOK,
             ChessPiece.PieceType.KNIGHT,
@@ -53,14 +68,26 @@ public class ChessBoard {
         if (notOnBoard(position)) {
             return;
         }
-        board[position.getRow() - 1][position.getColumn() - 1] = piece;
+        put(BitBoard.square(position), piece);
     }
 
-    public void removePiece(ChessPosition position) {
-        if (notOnBoard(position)) {
-            return;
+    private void put(int square, ChessPiece piece) {
+        BitBoard bits = bitBoard();
+        ChessPiece old = board[square >>> 3][square & 7];
+        if (old != null) {
+            bits.remove(square, old);
+            pieceKey ^= Zobrist.piece(old, square);
+        }
+        if (piece != null) {
+            bits.add(square, piece);
+            pieceKey ^= Zobrist.piece(piece, square);
         }
-        board[position.getRow() - 1][position.getColumn() - 1] = null;
+        board[square >>> 3][square & 7] = piece;
+        version++;
+    }
+
+    public void removePiece(ChessPosition position) {
+        addPiece(position, null);
     }
 
     /**
@@ -77,35 +104,295 @@ public class ChessBoard {
         return board[position.getRow() - 1][position.getColumn() - 1];
     }
 
+    ChessPiece getPiece(int square) {
+        return board[square >>> 3][square & 7];
+    }
+
     /**
      * Returns potential moves of all the pieces of the passed color. Returns all moves if passed null.
      */
     public ArrayList<ChessMove> getTeamMoves(ChessGame.TeamColor team) {
-        ChessGame.TeamColor filter = team == null ? null : team.other();
-        ArrayList<ChessMove> moves = new ArrayList<>();
-        for (int row = 0; row < 8; row++) {
-            for (int column = 0; column < 8; column++) {
-                ChessPosition pos = new ChessPosition(row + 1, column + 1);
-                ChessPiece piece = board[row][column];
-                if (piece != null && piece.getTeamColor() != filter) {
-                    moves.addAll(piece.pieceMoves(this, pos));
-                }
+        return MoveGenerator.teamMoves(this, team);
+    }
+
+    /**
+     * Determines whether any piece of the given team attacks a position, whatever stands on it.
+     *
+     * @param position the position to test
+     * @param by       the attacking team
+     * @return true if a piece of team by could capture on position were an enemy piece there
+     */
+    public boolean isAttacked(ChessPosition position, ChessGame.TeamColor by) {
+        return !notOnBoard(position) && bitBoard().isAttacked(BitBoard.square(position), by);
+    }
+
+    /**
+     * Plays move on this board without checking that it is legal, handling captures, promotion, castling and en
+     * passant, and updating the pieces' moved and en passant flags. Each call can be reverted exactly by a matching
+     * call to {@link #unmakeMove()}; moves are undone in last-in, first-out order.
+     *
+     * @param move the move to play; there must be a piece at its start position
+     */
+    public void makeMove(ChessMove move) {
+        makeMove(encode(move));
+    }
+
+    /**
+     * Packs move as a {@link Move}, working out from the piece that makes it whether it castles, captures en passant
+     * or pushes a pawn two squares.
+     *
+     * @throws IllegalArgumentException if there is no piece at the move's start position
+     */
+    int encode(ChessMove move) {
+        int from = BitBoard.square(move.getStartPosition());
+        int to = BitBoard.square(move.getEndPosition());
+        ChessPiece piece = getPiece(from);
+        if (piece == null) {
+            throw new IllegalArgumentException("No piece to move at " + move.getStartPosition());
+        }
+        if (move.getPromotionPiece() != null) {
+            return Move.of(from, to, move.getPromotionPiece());
+        }
+        int columnChange = (to & 7) - (from & 7);
+        int kind = Move.NORMAL;
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs(columnChange) == 2) {
+            kind = Move.CASTLE;
+        } else if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if (Math.abs((to >>> 3) - (from >>> 3)) == 2) {
+                kind = Move.DOUBLE_PUSH;
+            } else if (columnChange != 0 && getPiece(to) == null) {
+                kind = Move.EN_PASSANT;
             }
         }
-        return moves;
+        return Move.of(from, to, kind);
+    }
+
+    /**
+     * Plays a packed {@link Move} the same way as {@link #makeMove(ChessMove)}.
+     */
+    void makeMove(int move) {
+        bitBoard();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int kind = Move.kind(move);
+        ChessPiece piece = getPiece(from);
+        ChessPiece captured = getPiece(kind == Move.EN_PASSANT ? enPassantCaptureSquare(from, to) : to);
+
+        boolean rookHadMoved = false;
+        setEnPassantFlags(0);
+        if (kind == Move.EN_PASSANT) {
+            put(enPassantCaptureSquare(from, to), null);
+        } else if (kind == Move.CASTLE) {
+            int rookFrom = castleRookSquare(from, to);
+            ChessPiece rook = getPiece(rookFrom);
+            rookHadMoved = rook.hasMoved();
+            put(rookFrom, null);
+            put(from + Integer.signum((to & 7) - (from & 7)), rook);
+            rook.setHasMoved(true);
+        }
+        put(from, null);
+        ChessPiece.PieceType promotion = Move.promotion(move);
+        put(to, promotion == null ? piece : new ChessPiece(piece.getTeamColor(), promotion, true));
+        boolean hadMoved = piece.hasMoved();
+        piece.setHasMoved(true);
 
+        pushUndo(from | to << 6 | kind << 12 | doublePushSquare << 14 | (hadMoved ? 1 : 0) << 21
+                | (rookHadMoved ? 1 : 0) << 22, captured, piece);
+        doublePushSquare = kind == Move.DOUBLE_PUSH ? to : NO_SQUARE;
+        setEnPassantFlags(1);
     }
 
-    public ChessPosition getKingPosition(ChessGame.TeamColor color) {
-        for (int row = 0; row < 8; row++) {
-            for (int column = 0; column < 8; column++) {
-                ChessPiece piece = board[row][column];
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == color) {
-                    return new ChessPosition(row + 1, column + 1);
+    /**
+     * Reverts the most recent {@link #makeMove(ChessMove)} that has not already been reverted, restoring the same
+     * piece objects and flags that were on the board before it.
+     *
+     * @throws IllegalStateException if there is no move to revert
+     */
+    public void unmakeMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        undoSize--;
+        int record = undoRecords[undoSize];
+        ChessPiece captured = undoPieces[2 * undoSize];
+        ChessPiece piece = undoPieces[2 * undoSize + 1];
+        undoPieces[2 * undoSize] = null;
+        undoPieces[2 * undoSize + 1] = null;
+        int from = record & 63;
+        int to = record >>> 6 & 63;
+        int kind = record >>> 12 & 3;
+
+        setEnPassantFlags(0);
+        put(to, null);
+        put(from, piece);
+        piece.setHasMoved((record >>> 21 & 1) != 0);
+        if (kind == Move.EN_PASSANT) {
+            put(enPassantCaptureSquare(from, to), captured);
+        } else {
+            put(to, captured);
+        }
+        if (kind == Move.CASTLE) {
+            int rookTo = from + Integer.signum((to & 7) - (from & 7));
+            ChessPiece rook = getPiece(rookTo);
+            put(rookTo, null);
+            put(castleRookSquare(from, to), rook);
+            rook.setHasMoved((record >>> 22 & 1) != 0);
+        }
+        doublePushSquare = record >>> 14 & 127;
+        setEnPassantFlags(1);
+    }
+
+    private void pushUndo(int record, ChessPiece captured, ChessPiece moved) {
+        if (undoSize == undoRecords.length) {
+            undoRecords = Arrays.copyOf(undoRecords, undoSize * 2);
+            undoPieces = Arrays.copyOf(undoPieces, undoSize * 4);
+        }
+        undoRecords[undoSize] = record;
+        undoPieces[2 * undoSize] = captured;
+        undoPieces[2 * undoSize + 1] = moved;
+        undoSize++;
+    }
+
+    /**
+     * Forgets the undo records of the moves played so far, so that they can no longer be unmade. A game calls this
+     * once its move is committed, as it never unmakes one, so its board doesn't keep a record of every move it plays.
+     */
+    void clearUndo() {
+        Arrays.fill(undoPieces, 0, 2 * undoSize, null);
+        undoSize = 0;
+    }
+
+    /**
+     * @return whether a pawn of the team stands on square, as the pawn that just moved two squares must
+     */
+    boolean hasPawn(int square, ChessGame.TeamColor color) {
+        ChessPiece piece = getPiece(square);
+        return piece != null && piece.getPieceType() == ChessPiece.PieceType.PAWN && piece.getTeamColor() == color;
+    }
+
+    /**
+     * Records that the pawn on square has just moved two squares, so the pieces beside it may capture it en passant on
+     * the next move. Used when setting up a position rather than playing into it.
+     */
+    void setDoublePushSquare(int square) {
+        bitBoard();
+        setEnPassantFlags(0);
+        doublePushSquare = square;
+        setEnPassantFlags(1);
+        version++;
+    }
+
+    /**
+     * The pawn captured by an en passant move stands beside the capturing pawn's start, on the end column.
+     */
+    private static int enPassantCaptureSquare(int from, int to) {
+        return (from & ~7) | (to & 7);
+    }
+
+    /**
+     * The rook joining a castle stands 4 columns from the king on the queen side and 3 on the king side.
+     */
+    private static int castleRookSquare(int from, int to) {
+        return to < from ? from - 4 : from + 3;
+    }
+
+    /**
+     * Marks the pieces beside the last double-pushed pawn as able to capture it en passant, or clears those marks.
+     *
+     * @param scale 1 to set the flags, 0 to clear them
+     */
+    private void setEnPassantFlags(int scale) {
+        if (doublePushSquare == NO_SQUARE) {
+            return;
+        }
+        int column = doublePushSquare & 7;
+        if (column < 7 && getPiece(doublePushSquare + 1) != null) {
+            getPiece(doublePushSquare + 1).setEnPassant(-scale);
+        }
+        if (column > 0 && getPiece(doublePushSquare - 1) != null) {
+            getPiece(doublePushSquare - 1).setEnPassant(scale);
+        }
+    }
+
+    /**
+     * Computes the Zobrist key of this position: the pieces, the castling rights and any en passant capture that is
+     * available. The key doesn't say whose turn it is; {@link ChessGame#getZobristKey()} adds that.
+     *
+     * @return a 64-bit key that is the same for equal positions in every process
+     */
+    public long getZobristKey() {
+        bitBoard();
+        int column = enPassantColumn();
+        return pieceKey ^ Zobrist.castling(castlingRights()) ^ (column < 0 ? 0 : Zobrist.enPassant(column));
+    }
+
+    /**
+     * @return the castling rights still held, as a combination of the WHITE_KING_SIDE through BLACK_QUEEN_SIDE
+     * bits: the king and that side's rook are on their starting squares and have never moved
+     */
+    int castlingRights() {
+        int rights = 0;
+        for (var color : ChessGame.TeamColor.values()) {
+            int king = color == ChessGame.TeamColor.WHITE ? 4 : 60;
+            if (isUnmoved(king, color, ChessPiece.PieceType.KING)) {
+                int shift = 2 * color.ordinal();
+                if (isUnmoved(king + 3, color, ChessPiece.PieceType.ROOK)) {
+                    rights |= WHITE_KING_SIDE << shift;
+                }
+                if (isUnmoved(king - 4, color, ChessPiece.PieceType.ROOK)) {
+                    rights |= WHITE_QUEEN_SIDE << shift;
                 }
             }
         }
-        throw new RuntimeException("King Missing:\n" + this);
+        return rights;
+    }
+
+    private boolean isUnmoved(int square, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ChessPiece piece = getPiece(square);
+        return piece != null && piece.getTeamColor() == color && piece.getPieceType() == type && !piece.hasMoved();
+    }
+
+    /**
+     * @return the 0-indexed column of the pawn that just moved two squares if an enemy pawn beside it can capture it
+     * en passant, otherwise -1
+     */
+    int enPassantColumn() {
+        bitBoard();
+        if (doublePushSquare == NO_SQUARE) {
+            return -1;
+        }
+        ChessPiece pushed = getPiece(doublePushSquare);
+        if (pushed == null || pushed.getPieceType() != ChessPiece.PieceType.PAWN) {
+            // a position set up by hand may claim a double push without the pawn to go with it
+            return -1;
+        }
+        int column = doublePushSquare & 7;
+        long beside = (column > 0 ? BitBoard.bit(doublePushSquare - 1) : 0)
+                | (column < 7 ? BitBoard.bit(doublePushSquare + 1) : 0);
+        ChessGame.TeamColor enemy = pushed.getTeamColor().other();
+        return (beside & bits.pieces(enemy, ChessPiece.PieceType.PAWN)) == 0 ? -1 : column;
+    }
+
+    /**
+     * Finds a team's king from the king bitboard that addPiece and makeMove keep up to date, without scanning the
+     * board. If a team somehow has several kings, returns the one on the lowest square.
+     *
+     * @throws RuntimeException if the team has no king on the board
+     */
+    public ChessPosition getKingPosition(ChessGame.TeamColor color) {
+        int square = kingSquare(color);
+        if (square < 0) {
+            throw new RuntimeException("King Missing:\n" + this);
+        }
+        return ChessPosition.of(square);
+    }
+
+    /**
+     * @return the square of the team's king, or -1 if it has none
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        long kings = bitBoard().pieces(color, ChessPiece.PieceType.KING);
+        return kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
     }
 
     /**
@@ -127,7 +414,67 @@ public class ChessBoard {
                 board[row][column] = null;
             }
         }
+        rebuildDerivedState();
+        undoSize = 0;
+    }
 
+    /**
+     * Replaces every piece on the board at once, as when reading a stored board, and clears the move history.
+     *
+     * @param pieces the pieces indexed [row - 1][column - 1], which are placed on the board as they are
+     */
+    void setPieces(ChessPiece[][] pieces) {
+        for (int row = 0; row < 8; row++) {
+            System.arraycopy(pieces[row], 0, board[row], 0, 8);
+        }
+        rebuildDerivedState();
+        undoSize = 0;
+    }
+
+    /**
+     * Returns the bitboard mirror of this board, rebuilding it first if the piece array was replaced without going
+     * through addPiece (which is how reflective deserialization fills in a board).
+     */
+    BitBoard bitBoard() {
+        if (mirrored != board) {
+            rebuildDerivedState();
+        }
+        return bits;
+    }
+
+    /**
+     * Recomputes everything kept alongside the piece array from the pieces themselves: the bitboards, and the
+     * double-pushed pawn implied by any en passant flags.
+     */
+    private void rebuildDerivedState() {
+        if (bits == null) {
+            bits = new BitBoard();
+            undoRecords = new int[32];
+            undoPieces = new ChessPiece[64];
+        }
+        bits.clear();
+        pieceKey = 0;
+        doublePushSquare = NO_SQUARE;
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                ChessPiece piece = board[row][column];
+                if (piece != null) {
+                    int square = BitBoard.square(row + 1, column + 1);
+                    bits.add(square, piece);
+                    pieceKey ^= Zobrist.piece(piece, square);
+                    if (piece.getEnPassant() != 0) {
+                        doublePushSquare = square + piece.getEnPassant();
+                    }
+                }
+            }
+        }
+        mirrored = board;
+        version++;
+    }
+
+    int version() {
+        bitBoard();
+        return version;
     }
 
     @Override
@@ -136,12 +483,16 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return bitBoard().equals(that.bitBoard());
     }
 
+    /**
+     * Hashes the pieces alone, like equals, so boards that differ only in castling rights or en passant still collide.
+     */
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        bitBoard();
+        return Long.hashCode(pieceKey);
     }
 
     @Override
@@ -12,8 +12,19 @@ public class ChessGame {
 
     private TeamColor currentTurn = TeamColor.WHITE;
     private ChessBoard board = ChessBoard.newGameBoard();
-    private final ArrayList<ChessPiece> enPassantOn = new ArrayList<>();
     private GameStatus status = GameStatus.PENDING;
+    // plies since the last capture or pawn move, and the number of the move being played, as FEN counts them
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private transient AttackMap attackMap;
+    // reused for every move generation, so asking for moves allocates only the ChessMoves handed back
+    private transient MoveList moveList;
+    // the moves played so far, packed as Move packs them, and the position they were played from, kept as
+    // ChessBinary encodes a position, in FEN, or both, whichever it was last set or asked for as
+    private transient int[] history;
+    private transient int historySize;
+    private transient byte[] startPosition;
+    private transient String startFen;
 
     public ChessGame() {
     }
@@ -23,6 +34,30 @@ public class ChessGame {
         board = startPosition;
     }
 
+    /**
+     * Sets up a game from a position in Forsyth-Edwards Notation.
+     *
+     * @param fen a position such as {@code "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"}; any of the
+     *            fields after the piece placement may be left off
+     * @return a new game in that position, in check if the side to move is in check
+     * @throws IllegalArgumentException if fen is not a well-formed position
+     */
+    public static ChessGame fromFen(String fen) {
+        ChessGame game = Fen.parse(fen);
+        if (game.isInCheck(game.currentTurn)) {
+            game.status = GameStatus.getCheck(game.currentTurn);
+        }
+        return game;
+    }
+
+    /**
+     * @return the current position in Forsyth-Edwards Notation, including castling rights and any en passant capture
+     * the pieces' flags allow
+     */
+    public String toFen() {
+        return Fen.write(this);
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -50,119 +85,49 @@ public class ChessGame {
         if (piece == null) {
             return new ArrayList<>();
         }
-        return validateMoves(piece.pieceMoves(board, startPosition));
-    }
-
-    private ArrayList<ChessMove> allValidMoves(TeamColor teamColor) {
-        return validateMoves(board.getTeamMoves(teamColor));
+        return legalMoves(BitBoard.square(startPosition), piece.getTeamColor()).toChessMoves();
     }
 
-    private ArrayList<ChessMove> validateMoves(Collection<ChessMove> moves) {
-        ArrayList<ChessMove> validMoves = new ArrayList<>(moves);
-        validMoves.removeIf(this::moveCausesCheck);
-        return validMoves;
+    /**
+     * @return the legal moves of the piece on square, which belongs to teamColor, in this game's reusable list
+     */
+    private MoveList legalMoves(int square, TeamColor teamColor) {
+        MoveList moves = moveList();
+        moves.clear();
+        MoveGenerator.pieceMoves(board, square, moves);
+        moves.retainLegal(attackMap(teamColor));
+        return moves;
     }
 
-    private boolean moveCausesCheck(ChessMove move) {
-        ChessPosition start = move.getStartPosition();
-        ChessPiece piece = board.getPiece(start);
-        if (piece == null){
-            return true;
+    private MoveList moveList() {
+        if (moveList == null) {
+            moveList = new MoveList();
         }
-        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-            return kingMovedIntoCheck(move);
-        }
-        if (isInCheck(piece.getTeamColor())) {
-            return moveDoesNotEndCheck(move);
-        }
-        Collection<ChessPosition> pinningPieces = pinningPiecePositions(start);
-        switch (pinningPieces.size()) {
-            case 0:
-                return false;
-            case 1:
-                //when pinned: kill attacker, or stay in line
-                // end in  pinningPieces
-                // end -> attacker direction same
-                ChessPosition end = move.getEndPosition();
-                ChessPosition pinningPiece = pinningPieces.iterator().next();
-                return !end.equals(pinningPiece)
-                        && !Arrays.equals(start.direction(pinningPiece), end.direction(pinningPiece));
-            default:
-                return true; // pinned twice or more; always causes check
-        }
-
+        return moveList;
     }
 
-    private boolean moveDoesNotEndCheck(ChessMove move) {
-        ChessPosition start = move.getStartPosition();
-        ChessPosition end = move.getEndPosition();
-        ChessPiece piece = board.getPiece(start);
-        if (piece == null) {
-            throw new IllegalArgumentException();
-        }
-        ChessPosition kingPosition = board.getKingPosition(piece.getTeamColor());
-        if (kingPosition == null) {
-            throw new IllegalArgumentException();
-        }
-        HashSet<ChessPosition> kingAttackers = getAttackerPositions(attacksOnKing(piece.getTeamColor()));
-
-        boolean worthChecking = false;
-        int[] kingToMoveEndDirection = kingPosition.direction(end);
-        for (var attacker : kingAttackers) {
-            // Player currently in check. If the move doesn't kill
-            if (Arrays.equals(kingToMoveEndDirection, kingPosition.direction(attacker))) {
-                worthChecking = true;
+    private boolean hasValidMove(TeamColor teamColor) {
+        MoveList moves = moveList();
+        moves.clear();
+        MoveGenerator.teamMoves(board, teamColor, moves);
+        AttackMap attacks = attackMap(teamColor);
+        for (int i = 0; i < moves.size(); i++) {
+            if (attacks.isLegal(moves.get(i))) {
+                return true;
             }
         }
-        if (!worthChecking) {
-            return true;
-        }
-        ChessPiece captured = board.getPiece(end);
-        hardMove(move);
-        boolean out = isInCheck(piece.getTeamColor());
-        board.addPiece(start, piece);
-        board.addPiece(end, captured);
-        return out;
-    }
-
-    private boolean kingMovedIntoCheck(ChessMove move) {
-        ChessPosition kingPosition = move.getStartPosition();
-        ChessPosition end = move.getEndPosition();
-        ChessPiece king = board.getPiece(kingPosition);
-        if (king == null || king.getPieceType() != ChessPiece.PieceType.KING) {
-            throw new IllegalArgumentException();
-        }
-
-        if (isCastle(move)) {
-            // when the king piece generates the move, it checks that the other piece is a rook, that they are both the
-            // same color, that neither has moved, and that the middle squares are empty. Only Check validation remains.
-            // Final position not in check, or it wouldn't have made it to this call.
-            // finish validation
-            int[] direction = move.direction();
-            ChessMove middleMove = move.getStartPosition().getMoveTo(direction);
-            boolean inCheck = isInCheck(king.getTeamColor()); // not out of check
-            boolean middleNotValid = kingMovedIntoCheck(middleMove); // not through check
-            return inCheck || middleNotValid;
-        }
-
-        ChessPiece captured = board.getPiece(end);
-        hardMove(move);
-        boolean out = isInCheck(king.getTeamColor());
-        board.addPiece(kingPosition, king);
-        board.addPiece(end, captured);
-        return out;
+        return false;
     }
 
-    private void hardMove(ChessMove move) {
-//        int hash = board.hashCode();
-        if (move.getPromotionPiece() != null) {
-            TeamColor color = board.getPiece(move.getStartPosition()).getTeamColor();
-            board.addPiece(move.getEndPosition(), new ChessPiece(color, move.getPromotionPiece(), true));
-        } else {
-            board.addPiece(move.getEndPosition(), board.getPiece(move.getStartPosition()));
+    /**
+     * @return the check and pin analysis of the current position for teamColor, reusing the last one if the board has
+     * not changed since
+     */
+    private AttackMap attackMap(TeamColor teamColor) {
+        if (attackMap == null || !attackMap.isCurrent(board, teamColor)) {
+            attackMap = AttackMap.of(board, teamColor);
         }
-        board.removePiece(move.getStartPosition());
-//        return hash == board.hashCode();
+        return attackMap;
     }
 
     /**
@@ -172,27 +137,28 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
+        int packed = encodeLegal(move);
         ChessPiece piece = board.getPiece(move.getStartPosition());
-        var moveOptions = validMoves(move.getStartPosition());
-        boolean invalid = moveOptions.isEmpty()
-                       || !moveOptions.contains(move)
-                       || currentTurn != piece.getTeamColor()
+        boolean invalid = currentTurn != piece.getTeamColor()
                        || status == GameStatus.WHITE_WON
                        || status == GameStatus.BLACK_WON
                        || status == GameStatus.STALEMATE;
         if (invalid) {
             throw new InvalidMoveException("Invalid move: " + move);
         }
-        resetEnPassant();
-        if (isCastle(move)) {
-            castle(move);
-        } else if (isPawnFirstMove(move)) {
-            setEnPassant(move);
-        } else if (isEnPassant(move)) {
-            enPassantCapture(move);
+        if (historySize == 0) {
+            startPosition = ChessBinary.positionBytes(this);
+            startFen = null;
+        }
+        boolean resetsClock = piece.getPieceType() == ChessPiece.PieceType.PAWN
+                || board.getPiece(move.getEndPosition()) != null;
+        board.makeMove(packed);
+        board.clearUndo();
+        recordMove(packed);
+        halfmoveClock = resetsClock ? 0 : halfmoveClock + 1;
+        if (currentTurn == TeamColor.BLACK) {
+            fullmoveNumber++;
         }
-        hardMove(move);
-        piece.setHasMoved(true);
         currentTurn = currentTurn.other();
         if(isInCheck(currentTurn)){
             status = GameStatus.getCheck(currentTurn);
@@ -202,160 +168,155 @@ public class ChessGame {
         }
     }
 
-    public void resign(TeamColor side) throws InvalidMoveException {
-        if(status == GameStatus.WHITE_WON || status == GameStatus.BLACK_WON || status == GameStatus.STALEMATE){
-            throw new InvalidMoveException("Cannot resign after the game is over.");
+    /**
+     * @return move packed, if it is a legal move for the piece on its start square whoever's turn it is
+     * @throws InvalidMoveException if it isn't
+     */
+    private int encodeLegal(ChessMove move) throws InvalidMoveException {
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if (piece == null || ChessBoard.notOnBoard(move.getEndPosition())) {
+            throw new InvalidMoveException("Invalid move: " + move);
         }
-        status = GameStatus.getWin(side.other());
+        int packed = board.encode(move);
+        if (!legalMoves(Move.from(packed), piece.getTeamColor()).contains(packed)) {
+            throw new InvalidMoveException("Invalid move: " + move);
+        }
+        return packed;
     }
 
-    private void castle(ChessMove castle) {
-
-        int homeRow = castle.getStartPosition().getRow();
-        int[] direction = castle.direction();
-
-        // extract rook move
-        ChessPosition rookDestination = castle.getStartPosition().offset(direction);
-        ChessPosition rookStart = new ChessPosition(homeRow, direction[1] == -1 ? 1 : 8);
-        ChessPiece rook = board.getPiece(rookStart);
-        ChessMove rookMove = rookStart.getMoveTo(rookDestination);
+    private void recordMove(int move) {
+        if (history == null) {
+            history = new int[64];
+        } else if (historySize == history.length) {
+            history = Arrays.copyOf(history, historySize * 2);
+        }
+        history[historySize++] = move;
+    }
 
-        //perform rook move
-        hardMove(rookMove);
-        rook.setHasMoved(true);
+    /**
+     * Writes a move in Standard Algebraic Notation, such as {@code "Nf3"}, {@code "exd6"}, {@code "O-O"} or
+     * {@code "e8=Q#"}, as it would be played from the current position.
+     *
+     * @throws InvalidMoveException if move isn't legal for the piece on its start square
+     */
+    public String toSan(ChessMove move) throws InvalidMoveException {
+        int packed = encodeLegal(move);
+        return Notation.san(board, board.getPiece(move.getStartPosition()).getTeamColor(), packed);
+    }
 
-        // king move will be taken care of by calling method.
+    /**
+     * Reads a move for the side to move in Standard Algebraic Notation, ignoring any check or annotation suffix.
+     *
+     * @throws IllegalArgumentException if san doesn't name a legal move for the side to move
+     */
+    public ChessMove parseSan(String san) {
+        return Move.toChessMove(Notation.parseSan(board, currentTurn, san));
     }
 
-    private boolean isCastle(ChessMove castle) {
-        ChessPiece king = board.getPiece(castle.getStartPosition());
-        if (king == null) {
-            return false;
+    /**
+     * @return the moves made in this game, oldest first, since the position {@link #getStartFen()} gives
+     */
+    public List<ChessMove> getMoveHistory() {
+        List<ChessMove> moves = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            moves.add(Move.toChessMove(history[i]));
         }
-        int[] queenSide = new int[]{0, -2};
-        int[] kingSide = new int[]{0, 2};
-        return king.getPieceType() == ChessPiece.PieceType.KING &&
-                (Arrays.equals(castle.distance(), queenSide) || Arrays.equals(castle.distance(), kingSide));
+        return moves;
     }
 
-    private boolean isPawnFirstMove(ChessMove move) {
-        ChessPiece pawn = board.getPiece(move.getStartPosition());
-        if (pawn == null || pawn.getPieceType() != ChessPiece.PieceType.PAWN) {
-            return false;
+    /**
+     * @return the moves made in this game in Standard Algebraic Notation, found by replaying them from the start
+     */
+    public List<String> getSanHistory() {
+        ChessGame replay = historySize == 0 || startPosition == null ? fromFen(getStartFen())
+                : ChessBinary.fromBytes(startPosition);
+        List<String> moves = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            moves.add(Notation.san(replay.board, replay.currentTurn, history[i]));
+            replay.board.makeMove(history[i]);
+            replay.currentTurn = replay.currentTurn.other();
         }
-        return Math.abs(move.getStartPosition().difference(move.getEndPosition())[0]) == 2;
+        return moves;
     }
 
-    private void setEnPassant(ChessMove move) {
-        ChessPiece setNegative = board.getPiece(move.getEndPosition().offset(0, 1));
-        ChessPiece setPositive = board.getPiece(move.getEndPosition().offset(0, -1));
-        if (setNegative != null) {
-            setNegative.setEnPassant(-1);
-            enPassantOn.add(setNegative);
+    /**
+     * @return the position the move history starts from in Forsyth-Edwards Notation, which is the current position
+     * if no moves have been made
+     */
+    public String getStartFen() {
+        if (historySize == 0) {
+            return toFen();
         }
-        if (setPositive != null) {
-            setPositive.setEnPassant(1);
-            enPassantOn.add(setPositive);
+        if (startFen == null) {
+            startFen = ChessBinary.fromBytes(startPosition).toFen();
         }
+        return startFen;
     }
 
-    private void resetEnPassant() {
-        for (ChessPiece pawn : enPassantOn) {
-            pawn.setEnPassant(0);
+    /**
+     * @return the position the move history starts from as {@link ChessBinary} encodes a position without a history,
+     * which is the current position if no moves have been made
+     */
+    byte[] startPosition() {
+        if (historySize == 0) {
+            return ChessBinary.positionBytes(this);
         }
-        enPassantOn.clear();
-    }
-
-    private boolean isEnPassant(ChessMove move) {
-        ChessPiece self = board.getPiece(move.getStartPosition());
-        if (self == null || self.getPieceType() != ChessPiece.PieceType.PAWN) {
-            return false;
+        if (startPosition == null) {
+            startPosition = ChessBinary.positionBytes(fromFen(startFen));
         }
-        boolean pawnCapture = move.getStartPosition().getColumn() != move.getEndPosition().getColumn();
-        boolean openSquare = board.getPiece(move.getEndPosition()) == null;
-        ChessPosition foePos = getEnPassantFoePos(move);
-        ChessPiece foe = board.getPiece(foePos);
-        boolean isFoe = foe != null && foe.getPieceType() == ChessPiece.PieceType.PAWN
-                && foe.getTeamColor() != self.getTeamColor();
-        return pawnCapture && openSquare && isFoe;
+        return startPosition;
     }
 
-    private void enPassantCapture(ChessMove move) {
-        ChessPosition foePos = getEnPassantFoePos(move);
-        board.removePiece(foePos);
+    int historySize() {
+        return historySize;
     }
 
-    private static ChessPosition getEnPassantFoePos(ChessMove move) {
-        return new ChessPosition(move.getStartPosition().getRow(), move.getEndPosition().getColumn());
+    int historyMove(int index) {
+        return history[index];
     }
 
     /**
-     * Determines if the given team is in check
+     * Replaces the move history, as when reading a stored game.
      *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * @param moves the first size of which were played in order from startFen to reach the current position
      */
-    public boolean isInCheck(TeamColor teamColor) {
-        return !attacksOnKing(teamColor).isEmpty();
+    void setHistory(String startFen, int[] moves, int size) {
+        this.startFen = startFen;
+        startPosition = null;
+        history = moves;
+        historySize = size;
     }
 
-    private static HashSet<ChessPosition> getAttackerPositions(Collection<ChessMove> attacks) {
-        HashSet<ChessPosition> positions = new HashSet<>();
-        for (ChessMove attack : attacks) {
-            positions.add(attack.getStartPosition());
-        }
-        return positions;
+    /**
+     * Replaces the move history, as when reading a stored game.
+     *
+     * @param startPosition the position the moves start from, as {@link ChessBinary} encodes a position without a
+     *                      history
+     * @param moves         the first size of which were played in order from startPosition to reach the current
+     *                      position
+     */
+    void setHistory(byte[] startPosition, int[] moves, int size) {
+        this.startPosition = startPosition;
+        startFen = null;
+        history = moves;
+        historySize = size;
     }
 
-    private Collection<ChessPosition> pinningPiecePositions(ChessPosition position) {
-        ChessPiece piece = board.getPiece(position);
-        if (piece == null || piece.getPieceType() == ChessPiece.PieceType.KING) {
-            return new HashSet<>();
-        }
-        TeamColor color = piece.getTeamColor();
-        var attacksOnPosition = rawAttacks(position);
-        if (attacksOnPosition.isEmpty()) {
-            return new HashSet<>();
-        }
-
-        HashSet<ChessPosition> attackers = getAttackerPositions(attacksOnPosition);
-
-        board.removePiece(position);
-        ArrayList<ChessMove> potentialKingAttacks = new ArrayList<>();
-        for (var attacker : attackers) {
-            potentialKingAttacks.addAll(board.getPiece(attacker).pieceMoves(board, attacker));
+    public void resign(TeamColor side) throws InvalidMoveException {
+        if(status == GameStatus.WHITE_WON || status == GameStatus.BLACK_WON || status == GameStatus.STALEMATE){
+            throw new InvalidMoveException("Cannot resign after the game is over.");
         }
-        potentialKingAttacks.removeIf(move -> !board.getKingPosition(color).equals(move.getEndPosition()));
-
-        HashSet<ChessPosition> pinningPieces = getAttackerPositions(potentialKingAttacks);
-
-        board.addPiece(position, piece);
-        return pinningPieces;
-    }
-
-    private Collection<ChessMove> attacksOnKing(TeamColor teamColor) {
-        return rawAttacks(board.getKingPosition(teamColor));
+        status = GameStatus.getWin(side.other());
     }
 
     /**
-     * Calculates all moves the opponent could make that end on the given position.
+     * Determines if the given team is in check
      *
-     * @param position the position to find the attackers of
-     * @return the moves of the opposite team of the one occupying the passed position that end on that position, not
-     * filtered for validity.
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
      */
-    private Collection<ChessMove> rawAttacks(ChessPosition position) {
-
-        if (position == null) {
-            return new ArrayList<>();
-        }
-        ChessPiece piece = board.getPiece(position);
-        if (piece == null) {
-            return new ArrayList<>();
-        }
-        ArrayList<ChessMove> attacks = board.getTeamMoves(piece.getTeamColor().other());
-        attacks.removeIf(move -> !position.equals(move.getEndPosition()));
-        return attacks;
+    public boolean isInCheck(TeamColor teamColor) {
+        return attackMap(teamColor).inCheck();
     }
 
     /**
@@ -368,7 +329,7 @@ public class ChessGame {
         if (!isInCheck(teamColor)) {
             return false;
         }
-        if(allValidMoves(teamColor).isEmpty()){
+        if(!hasValidMove(teamColor)){
             status = GameStatus.getWin(teamColor.other());
             return true;
         }
@@ -386,7 +347,7 @@ public class ChessGame {
         if (isInCheck(teamColor)) {
             return false;
         }
-        if(allValidMoves(teamColor).isEmpty()){
+        if(!hasValidMove(teamColor)){
             status = GameStatus.getWin(null);
             return true;
         }
@@ -409,6 +370,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        historySize = 0;
     }
 
     /**
@@ -472,6 +434,34 @@ public class ChessGame {
         return status;
     }
 
+    /**
+     * Sets the status, e.g. when restoring a stored game whose position alone doesn't say it was resigned
+     */
+    public void setStatus(GameStatus status){
+        this.status = status;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * @return the number of half-moves played since the game began, counted from the fullmove number and whose turn it
+     * is, so it is right for games set up from a position too
+     */
+    public int getPlyCount() {
+        return 2 * (fullmoveNumber - 1) + (currentTurn == TeamColor.BLACK ? 1 : 0);
+    }
+
+    void setMoveCounters(int halfmoveClock, int fullmoveNumber) {
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -483,6 +473,21 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(currentTurn, board);
+        return Long.hashCode(board.hashCode() ^ sideKey());
+    }
+
+    /**
+     * Computes the Zobrist key of the current position, including whose turn it is. Unlike hashCode, the key also
+     * tells apart positions that differ only in castling rights or en passant, so it identifies a position for
+     * repetition detection and position caches.
+     *
+     * @return a 64-bit key that is the same for the same position in every process
+     */
+    public long getZobristKey() {
+        return board.getZobristKey() ^ sideKey();
+    }
+
+    private long sideKey() {
+        return currentTurn == TeamColor.BLACK ? Zobrist.BLACK_TO_MOVE : 0;
     }
 }
@@ -0,0 +1,314 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The one Gson instance everything should use to serialize the chess model. It writes ChessGame, ChessBoard,
+ * ChessPiece, ChessMove and ChessPosition with hand-written streaming adapters instead of reflection, in the same JSON
+ * shape reflective Gson produced, so either side of a connection can still use plain Gson. The differences are that a
+ * piece's hasMoved and enPassant flags are left out when they are false and 0, which plain Gson reads as those same
+ * defaults.
+ * <p>
+ * A game's move history is left out, as it grows with every move while the position stays the same size, and nothing
+ * sent to clients or stored as a snapshot needs it. {@link #WITH_HISTORY} writes it too, as startFen and moves fields,
+ * the moves packed into ints, which plain Gson ignores. Both read it wherever it is present.
+ */
+public final class ChessJson {
+
+    public static final Gson GSON = create(false);
+    /**
+     * Like {@link #GSON}, but also writes each game's move history, for the few places that want it.
+     */
+    public static final Gson WITH_HISTORY = create(true);
+
+    private ChessJson() {
+    }
+
+    private static Gson create(boolean withHistory) {
+        return new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new GameAdapter(withHistory).nullSafe())
+                .registerTypeAdapter(ChessBoard.class, new BoardAdapter().nullSafe())
+                .registerTypeAdapter(ChessPiece.class, new PieceAdapter().nullSafe())
+                .registerTypeAdapter(ChessMove.class, new MoveAdapter().nullSafe())
+                .registerTypeAdapter(ChessPosition.class, new PositionAdapter().nullSafe())
+                .create();
+    }
+
+    private static final class GameAdapter extends TypeAdapter<ChessGame> {
+        private final boolean withHistory;
+
+        GameAdapter(boolean withHistory) {
+            this.withHistory = withHistory;
+        }
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            out.beginObject();
+            out.name("currentTurn").value(game.getTeamTurn().name());
+            out.name("board");
+            writeBoard(out, game.getBoard());
+            out.name("status").value(game.getStatus().name());
+            out.name("halfmoveClock").value(game.getHalfmoveClock());
+            out.name("fullmoveNumber").value(game.getFullmoveNumber());
+            if (withHistory && game.historySize() > 0) {
+                out.name("startFen").value(game.getStartFen());
+                out.name("moves").beginArray();
+                for (int i = 0; i < game.historySize(); i++) {
+                    out.value(game.historyMove(i));
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            ChessGame.TeamColor turn = ChessGame.TeamColor.WHITE;
+            ChessBoard board = null;
+            ChessGame.GameStatus status = ChessGame.GameStatus.PENDING;
+            int halfmoveClock = 0;
+            int fullmoveNumber = 1;
+            String startFen = null;
+            int[] moves = new int[0];
+            int moveCount = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "currentTurn" -> turn = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "board" -> board = readBoard(in);
+                    case "status" -> status = ChessGame.GameStatus.valueOf(in.nextString());
+                    case "halfmoveClock" -> halfmoveClock = in.nextInt();
+                    case "fullmoveNumber" -> fullmoveNumber = in.nextInt();
+                    case "startFen" -> startFen = in.nextString();
+                    case "moves" -> {
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            if (moveCount == moves.length) {
+                                moves = Arrays.copyOf(moves, Math.max(64, moveCount * 2));
+                            }
+                            moves[moveCount++] = in.nextInt();
+                        }
+                        in.endArray();
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            ChessGame game = new ChessGame(turn, board == null ? ChessBoard.newGameBoard() : board);
+            game.setStatus(status);
+            game.setMoveCounters(halfmoveClock, fullmoveNumber);
+            if (startFen != null && moveCount > 0) {
+                game.setHistory(startFen, moves, moveCount);
+            }
+            return game;
+        }
+    }
+
+    private static final class BoardAdapter extends TypeAdapter<ChessBoard> {
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            writeBoard(out, board);
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            return readBoard(in);
+        }
+    }
+
+    private static void writeBoard(JsonWriter out, ChessBoard board) throws IOException {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("board").beginArray();
+        for (int row = 0; row < 8; row++) {
+            out.beginArray();
+            for (int column = 0; column < 8; column++) {
+                writePiece(out, board.getPiece(row * 8 + column));
+            }
+            out.endArray();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private static ChessBoard readBoard(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessPiece[][] pieces = new ChessPiece[8][8];
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!in.nextName().equals("board")) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            for (int row = 0; in.hasNext(); row++) {
+                in.beginArray();
+                for (int column = 0; in.hasNext(); column++) {
+                    pieces[row][column] = readPiece(in);
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+        in.endObject();
+        ChessBoard board = new ChessBoard();
+        board.setPieces(pieces);
+        return board;
+    }
+
+    private static final class PieceAdapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            writePiece(out, piece);
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            return readPiece(in);
+        }
+    }
+
+    private static void writePiece(JsonWriter out, ChessPiece piece) throws IOException {
+        if (piece == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("color").value(piece.getTeamColor().name());
+        out.name("type").value(piece.getPieceType().name());
+        if (piece.hasMoved()) {
+            out.name("hasMoved").value(true);
+        }
+        if (piece.getEnPassant() != 0) {
+            out.name("enPassant").value(piece.getEnPassant());
+        }
+        out.endObject();
+    }
+
+    private static ChessPiece readPiece(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        boolean hasMoved = false;
+        int enPassant = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "color" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                case "type" -> type = ChessPiece.PieceType.valueOf(in.nextString());
+                case "hasMoved" -> hasMoved = in.nextBoolean();
+                case "enPassant" -> enPassant = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        ChessPiece piece = new ChessPiece(color, type, hasMoved);
+        piece.setEnPassant(enPassant);
+        return piece;
+    }
+
+    private static final class MoveAdapter extends TypeAdapter<ChessMove> {
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            out.beginObject();
+            out.name("startPosition");
+            writePosition(out, move.getStartPosition());
+            out.name("endPosition");
+            writePosition(out, move.getEndPosition());
+            if (move.getPromotionPiece() != null) {
+                out.name("promotionPiece").value(move.getPromotionPiece().name());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "startPosition" -> start = readPosition(in);
+                    case "endPosition" -> end = readPosition(in);
+                    case "promotionPiece" -> promotion = readPromotion(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessMove(start, end, promotion);
+        }
+    }
+
+    private static ChessPiece.PieceType readPromotion(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return ChessPiece.PieceType.valueOf(in.nextString());
+    }
+
+    private static final class PositionAdapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            writePosition(out, position);
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            return readPosition(in);
+        }
+    }
+
+    private static void writePosition(JsonWriter out, ChessPosition position) throws IOException {
+        if (position == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("col").value(position.getColumn());
+        out.name("row").value(position.getRow());
+        out.endObject();
+    }
+
+    /**
+     * @return the shared instance for an on-board position, or a new position for an off-board one, so that invalid
+     * moves still report the coordinates they were sent with
+     */
+    private static ChessPosition readPosition(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int row = 0;
+        int col = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "row" -> row = in.nextInt();
+                case "col" -> col = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        ChessPosition position = ChessPosition.of(row, col);
+        return position == ChessPosition.OFF_BOARD ? new ChessPosition(row, col) : position;
+    }
+}
@@ -48,6 +48,40 @@ public class ChessMove implements Comparable<ChessMove> {
         return promotionPiece;
     }
 
+    /**
+     * @return the move in UCI long algebraic notation, such as {@code "e2e4"} or {@code "e7e8q"}
+     */
+    public String toUci() {
+        return Notation.uci(this);
+    }
+
+    /**
+     * Reads a move in UCI long algebraic notation. Castling is written as the king's two-square move.
+     *
+     * @throws IllegalArgumentException if uci is not two squares optionally followed by q, r, b or n
+     */
+    public static ChessMove fromUci(String uci) {
+        return Notation.parseUci(uci);
+    }
+
+    /**
+     * @return the move packed into an int, with the start square in bits 0-5 and the end square in bits 6-11, squares
+     * being numbered from 0 for a1 to 63 for h8 along each row in turn, and the promotion piece's ordinal in bits 12-14
+     * (0 for no promotion)
+     */
+    public int toPacked() {
+        int from = BitBoard.square(startPosition);
+        int to = BitBoard.square(endPosition);
+        return promotionPiece == null ? Move.of(from, to, Move.NORMAL) : Move.of(from, to, promotionPiece);
+    }
+
+    /**
+     * Reads a move packed by {@link #toPacked()}.
+     */
+    public static ChessMove fromPacked(int packed) {
+        return Move.toChessMove(packed);
+    }
+
     @Override
     public int compareTo(ChessMove move) {
         return this.startPosition.compareTo(move.startPosition) * 100
@@ -83,6 +83,17 @@ public final class ChessPiece implements Comparable<ChessPiece>, Cloneable {
         return type;
     }
 
+    /**
+     * @return -1 or 1 if this pawn may capture en passant toward that column offset, 0 otherwise
+     */
+    int getEnPassant() {
+        return enPassant;
+    }
+
+    boolean hasMoved() {
+        return hasMoved;
+    }
+
     public void setEnPassant(int enPassant) throws IllegalArgumentException {
         if (Math.abs(enPassant) > 1) {
             throw new IllegalArgumentException();
@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board.
  * <p>
@@ -11,11 +9,63 @@ import java.util.Objects;
 public class ChessPosition implements Comparable<ChessPosition> {
 
     private static final char[] COLUMNS = {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h'};
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+    /**
+     * The position returned for every square off the board. Offsetting it stays off the board.
+     */
+    public static final ChessPosition OFF_BOARD = new ChessPosition(0, 0);
     private final int col, row;
+    // worked out once by the constructor; Gson builds positions without running it, leaving both 0, so a position
+    // with hash 0 works them out on each call instead
+    private final transient int square, hash;
+
+    static {
+        for (int square = 0; square < SQUARES.length; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
 
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
+        this.square = squareOf(row, col);
+        this.hash = hashOf(row, col);
+    }
+
+    /**
+     * Returns the shared instance for a square rather than creating a new one. Positions made with the constructor
+     * still work everywhere and compare equal to these.
+     *
+     * @return the canonical position for (row, col), or {@link #OFF_BOARD} if that isn't on the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return OFF_BOARD;
+        }
+        return SQUARES[(row - 1) * 8 + col - 1];
+    }
+
+    /**
+     * @param square a square index from a1 = 0 to h8 = 63
+     */
+    static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
+
+    /**
+     * @return this position's square index, from a1 = 0 to h8 = 63
+     */
+    int square() {
+        return hash != 0 ? square : squareOf(row, col);
+    }
+
+    private static int squareOf(int row, int col) {
+        return (row - 1) * 8 + col - 1;
+    }
+
+    private static int hashOf(int row, int col) {
+        // the same value Objects.hash(col, row) gave, without boxing
+        return 31 * (31 + col) + row;
     }
 
     /**
@@ -34,8 +84,17 @@ public class ChessPosition implements Comparable<ChessPosition> {
         return col;
     }
 
+    /**
+     * @return the position that many rows and columns away, which is the canonical instance if it is on the board and
+     * keeps its coordinates if it isn't
+     */
     public ChessPosition offset(int rowOffset, int colOffset) {
-        return new ChessPosition(row + rowOffset, col + colOffset);
+        int newRow = row + rowOffset;
+        int newCol = col + colOffset;
+        if (newRow < 1 || newRow > 8 || newCol < 1 || newCol > 8) {
+            return new ChessPosition(newRow, newCol);
+        }
+        return SQUARES[squareOf(newRow, newCol)];
     }
 
     public ChessPosition offset(int... offsets) {
@@ -98,6 +157,9 @@ public class ChessPosition implements Comparable<ChessPosition> {
 
     @Override
     public String toString() {
+        if (col < 1 || col > 8) {
+            return "(" + row + ", " + col + ")";
+        }
         return "" + COLUMNS[col - 1] + row;
     }
 
@@ -112,6 +174,6 @@ public class ChessPosition implements Comparable<ChessPosition> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(col, row);
+        return hash != 0 ? hash : hashOf(row, col);
     }
 }
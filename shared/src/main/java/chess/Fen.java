@@ -0,0 +1,175 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation. Castling rights come from the kings' and rooks' moved flags
+ * and the en passant square from the pawns' en passant flags, so a game written out and read back plays the same.
+ */
+final class Fen {
+
+    private Fen() {
+    }
+
+    /**
+     * @param fen a position such as {@code "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"}; any of the
+     *            fields after the piece placement may be left off
+     * @return a game in that position with that side to move
+     * @throws IllegalArgumentException if fen is not a well-formed position
+     */
+    static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Expected 8 rows in " + fen);
+        }
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int column = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    column += c - '0';
+                    continue;
+                }
+                if (column > 8) {
+                    throw new IllegalArgumentException("Row " + row + " is too long in " + fen);
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE
+                        : ChessGame.TeamColor.BLACK;
+                // kings and rooks count as moved unless a castling right says otherwise
+                ChessPiece.PieceType type = pieceType(c, fen);
+                boolean moved = type == ChessPiece.PieceType.KING || type == ChessPiece.PieceType.ROOK;
+                board.addPiece(ChessPosition.of(row, column), new ChessPiece(color, type, moved));
+                column++;
+            }
+            if (column != 9) {
+                throw new IllegalArgumentException("Row " + row + " has the wrong length in " + fen);
+            }
+        }
+
+        ChessGame.TeamColor turn = ChessGame.TeamColor.WHITE;
+        if (fields.length > 1) {
+            turn = switch (fields[1]) {
+                case "w" -> ChessGame.TeamColor.WHITE;
+                case "b" -> ChessGame.TeamColor.BLACK;
+                default -> throw new IllegalArgumentException("Bad side to move in " + fen);
+            };
+        }
+        if (fields.length > 2 && !fields[2].equals("-")) {
+            for (char c : fields[2].toCharArray()) {
+                grantCastling(board, c, fen);
+            }
+        }
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            int square = square(fields[3], fen);
+            // the pawn that just moved two squares stands one row past the square it skipped
+            int pawn = square + (turn == ChessGame.TeamColor.WHITE ? -8 : 8);
+            if (square >>> 3 != (turn == ChessGame.TeamColor.WHITE ? 5 : 2) || !board.hasPawn(pawn, turn.other())) {
+                throw new IllegalArgumentException("Bad en passant square '" + fields[3] + "' in " + fen);
+            }
+            board.setDoublePushSquare(pawn);
+        }
+        ChessGame game = new ChessGame(turn, board);
+        try {
+            game.setMoveCounters(fields.length > 4 ? Integer.parseInt(fields[4]) : 0,
+                    fields.length > 5 ? Integer.parseInt(fields[5]) : 1);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad move counters in " + fen);
+        }
+        return game;
+    }
+
+    /**
+     * @return the game's position in Forsyth-Edwards Notation; the en passant square is only written when a pawn can
+     * actually capture there
+     */
+    static String write(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int column = 1; column <= 8; column++) {
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, column));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                String letter = piece.getPieceType().abbreviation();
+                fen.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? letter : letter.toLowerCase());
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        int rights = board.castlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        }
+        String letters = "KQkq";
+        for (int i = 0; i < letters.length(); i++) {
+            if ((rights & 1 << i) != 0) {
+                fen.append(letters.charAt(i));
+            }
+        }
+
+        int column = board.enPassantColumn();
+        if (column < 0) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append((char) ('a' + column))
+                    .append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? '6' : '3');
+        }
+        return fen.append(' ').append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber())
+                .toString();
+    }
+
+    private static ChessPiece.PieceType pieceType(char c, String fen) {
+        return switch (Character.toUpperCase(c)) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'P' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown piece '" + c + "' in " + fen);
+        };
+    }
+
+    private static void grantCastling(ChessBoard board, char right, String fen) {
+        ChessGame.TeamColor color = Character.isUpperCase(right) ? ChessGame.TeamColor.WHITE
+                : ChessGame.TeamColor.BLACK;
+        int row = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+        int rookColumn = switch (Character.toUpperCase(right)) {
+            case 'K' -> 8;
+            case 'Q' -> 1;
+            default -> throw new IllegalArgumentException("Unknown castling right '" + right + "' in " + fen);
+        };
+        ChessPiece king = board.getPiece(ChessPosition.of(row, 5));
+        ChessPiece rook = board.getPiece(ChessPosition.of(row, rookColumn));
+        if (!isPiece(king, color, ChessPiece.PieceType.KING) || !isPiece(rook, color, ChessPiece.PieceType.ROOK)) {
+            throw new IllegalArgumentException("No king and rook to castle with for '" + right + "' in " + fen);
+        }
+        king.setHasMoved(false);
+        rook.setHasMoved(false);
+    }
+
+    private static boolean isPiece(ChessPiece piece, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return piece != null && piece.getTeamColor() == color && piece.getPieceType() == type;
+    }
+
+    private static int square(String name, String fen) {
+        if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h' || name.charAt(1) < '1'
+                || name.charAt(1) > '8') {
+            throw new IllegalArgumentException("Bad square '" + name + "' in " + fen);
+        }
+        return BitBoard.square(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+}
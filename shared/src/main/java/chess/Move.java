@@ -0,0 +1,48 @@
+package chess;
+
+/**
+ * Moves packed into an int, so move generation and search can pass them around without allocating. Bits 0-5 hold the
+ * start square and bits 6-11 the end square (indexed as in {@link BitBoard}), bits 12-14 the promotion piece's
+ * {@link ChessPiece.PieceType} ordinal (0, the king's, for none), and bits 15-16 the kind of move. {@link ChessMove}
+ * objects are only made from these at the public API.
+ */
+final class Move {
+
+    static final int NORMAL = 0, CASTLE = 1, EN_PASSANT = 2, DOUBLE_PUSH = 3;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    static int of(int from, int to, int kind) {
+        return from | to << 6 | kind << 15;
+    }
+
+    static int of(int from, int to, ChessPiece.PieceType promotion) {
+        return from | to << 6 | promotion.ordinal() << 12;
+    }
+
+    static int from(int move) {
+        return move & 63;
+    }
+
+    static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    /**
+     * @return the piece a pawn promotes to, or null if the move isn't a promotion
+     */
+    static ChessPiece.PieceType promotion(int move) {
+        int type = move >>> 12 & 7;
+        return type == 0 ? null : TYPES[type];
+    }
+
+    static int kind(int move) {
+        return move >>> 15 & 3;
+    }
+
+    static ChessMove toChessMove(int move) {
+        return new ChessMove(BitBoard.position(from(move)), BitBoard.position(to(move)), promotion(move));
+    }
+}
@@ -0,0 +1,174 @@
+package chess;
+
+import java.util.ArrayList;
+
+/**
+ * Pseudo-legal move generation over a board's {@link BitBoard} and the {@link Attacks} tables. Produces the same move
+ * sets as {@link ChessPiece#pieceMoves}, castling and en passant included, without stepping along rays one square at a
+ * time. Moves are generated as packed {@link Move}s into a {@link MoveList}; the ChessMove versions convert at the end.
+ */
+final class MoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.ROOK
+    };
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * @return the moves of the piece at position, not filtered for leaving its king in check; empty if the square is
+     * empty
+     */
+    static ArrayList<ChessMove> pieceMoves(ChessBoard board, ChessPosition position) {
+        MoveList moves = new MoveList();
+        if (!ChessBoard.notOnBoard(position)) {
+            pieceMoves(board, BitBoard.square(position), moves);
+        }
+        return moves.toChessMoves();
+    }
+
+    /**
+     * @return the moves of every piece of the given team, or of both teams if team is null
+     */
+    static ArrayList<ChessMove> teamMoves(ChessBoard board, ChessGame.TeamColor team) {
+        MoveList moves = new MoveList();
+        teamMoves(board, team, moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Adds the moves of the piece on square to moves, not filtered for leaving its king in check; adds nothing if the
+     * square is empty.
+     */
+    static void pieceMoves(ChessBoard board, int square, MoveList moves) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece != null) {
+            addPieceMoves(board, board.bitBoard(), square, piece, moves);
+        }
+    }
+
+    /**
+     * Adds the moves of every piece of the given team, or of both teams if team is null, to moves.
+     */
+    static void teamMoves(ChessBoard board, ChessGame.TeamColor team, MoveList moves) {
+        BitBoard bits = board.bitBoard();
+        long pieces = team == null ? bits.occupancy() : bits.occupancy(team);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addPieceMoves(board, bits, square, board.getPiece(square), moves);
+        }
+    }
+
+    private static void addPieceMoves(ChessBoard board, BitBoard bits, int square, ChessPiece piece,
+                                      MoveList moves) {
+        long occupied = bits.occupancy();
+        long targets = switch (piece.getPieceType()) {
+            case KING -> Attacks.king(square);
+            case QUEEN -> Attacks.queen(square, occupied);
+            case BISHOP -> Attacks.bishop(square, occupied);
+            case KNIGHT -> Attacks.knight(square);
+            case ROOK -> Attacks.rook(square, occupied);
+            case PAWN -> pawnTargets(board, bits, square, piece);
+        };
+        targets &= ~bits.occupancy(piece.getTeamColor());
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            addPawnMoves(square, targets, occupied, piece.getTeamColor(), moves);
+            return;
+        }
+        addMoves(square, targets, moves);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            addCastle(board, occupied, square, piece, -4, moves);
+            addCastle(board, occupied, square, piece, 3, moves);
+        }
+    }
+
+    private static void addMoves(int square, long targets, MoveList moves) {
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Move.of(square, target, Move.NORMAL));
+        }
+    }
+
+    private static long pawnTargets(ChessBoard board, BitBoard bits, int square, ChessPiece pawn) {
+        ChessGame.TeamColor color = pawn.getTeamColor();
+        int direction = color.pawnDirection();
+        int row = BitBoard.row(square);
+        int column = BitBoard.column(square);
+        long occupied = bits.occupancy();
+        long targets = Attacks.pawn(color, square) & bits.occupancy(color.other());
+
+        int forwardRow = row + direction;
+        if (forwardRow >= 1 && forwardRow <= 8) {
+            long forward = BitBoard.bit(BitBoard.square(forwardRow, column));
+            if ((occupied & forward) == 0) {
+                targets |= forward;
+                if (row == color.pawnStartRow()) {
+                    long doubleForward = BitBoard.bit(BitBoard.square(forwardRow + direction, column));
+                    targets |= doubleForward & ~occupied;
+                }
+            }
+        }
+
+        int side = pawn.getEnPassant();
+        int foeColumn = column + side;
+        if (side != 0 && row == color.pawnStartRow() + 3 * direction && foeColumn >= 1 && foeColumn <= 8) {
+            ChessPiece foe = board.getPiece(BitBoard.square(row, foeColumn));
+            if (foe != null && foe.getTeamColor() != color && foe.getPieceType() == ChessPiece.PieceType.PAWN) {
+                targets |= BitBoard.bit(BitBoard.square(forwardRow, foeColumn));
+            }
+        }
+        return targets;
+    }
+
+    private static void addPawnMoves(int square, long targets, long occupied, ChessGame.TeamColor color,
+                                     MoveList moves) {
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (BitBoard.row(target) == color.pawnPromoRow()) {
+                for (var promotion : PROMOTIONS) {
+                    moves.add(Move.of(square, target, promotion));
+                }
+            } else if (Math.abs(target - square) == 16) {
+                moves.add(Move.of(square, target, Move.DOUBLE_PUSH));
+            } else if ((target & 7) != (square & 7) && (occupied & BitBoard.bit(target)) == 0) {
+                moves.add(Move.of(square, target, Move.EN_PASSANT));
+            } else {
+                moves.add(Move.of(square, target, Move.NORMAL));
+            }
+        }
+    }
+
+    /**
+     * Adds the castle toward the rook rookOffset columns away, under the same conditions as the piece-by-piece
+     * generator: an unmoved king on a home row, an unmoved friendly rook, and nothing in between.
+     */
+    private static void addCastle(ChessBoard board, long occupied, int square, ChessPiece king, int rookOffset,
+                                  MoveList moves) {
+        if (king.hasMoved() || BitBoard.row(square) % 7 != 1) {
+            return;
+        }
+        int rookColumn = BitBoard.column(square) + rookOffset;
+        if (rookColumn < 1 || rookColumn > 8) {
+            return;
+        }
+        ChessPiece rook = board.getPiece(square + rookOffset);
+        if (rook == null || rook.hasMoved() || rook.getTeamColor() != king.getTeamColor()
+                || rook.getPieceType() != ChessPiece.PieceType.ROOK) {
+            return;
+        }
+        int step = Integer.signum(rookOffset);
+        for (int between = square + step; between != square + rookOffset; between += step) {
+            if ((occupied & BitBoard.bit(between)) != 0) {
+                return;
+            }
+        }
+        moves.add(Move.of(square, square + 2 * step, Move.CASTLE));
+    }
+}
@@ -0,0 +1,68 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A growable list of packed {@link Move}s that is cleared and refilled rather than reallocated, so generating moves
+ * into it allocates nothing once it has grown to fit.
+ */
+final class MoveList {
+
+    // no legal chess position has more than 218 moves
+    private int[] moves = new int[256];
+    private int size;
+
+    void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    int get(int index) {
+        return moves[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Removes every move that isn't legal according to attacks, keeping the rest in order.
+     */
+    void retainLegal(AttackMap attacks) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (attacks.isLegal(moves[i])) {
+                moves[kept++] = moves[i];
+            }
+        }
+        size = kept;
+    }
+
+    ArrayList<ChessMove> toChessMoves() {
+        ArrayList<ChessMove> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(Move.toChessMove(moves[i]));
+        }
+        return result;
+    }
+}
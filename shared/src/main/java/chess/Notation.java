@@ -0,0 +1,161 @@
+package chess;
+
+/**
+ * Writes and reads moves in Standard Algebraic Notation ({@code "Nbd7"}, {@code "exd5"}, {@code "O-O"},
+ * {@code "e8=Q+"}) and in the UCI protocol's long algebraic notation ({@code "b8d7"}, {@code "e7e8q"}).
+ */
+final class Notation {
+
+    private Notation() {
+    }
+
+    static String uci(ChessMove move) {
+        StringBuilder uci = new StringBuilder(5)
+                .append(squareName(move.getStartPosition().square()))
+                .append(squareName(move.getEndPosition().square()));
+        if (move.getPromotionPiece() != null) {
+            uci.append(move.getPromotionPiece().abbreviation().toLowerCase());
+        }
+        return uci.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if uci is not two squares optionally followed by a promotion piece
+     */
+    static ChessMove parseUci(String uci) {
+        if (uci.length() != 4 && uci.length() != 5) {
+            throw new IllegalArgumentException("Bad UCI move '" + uci + "'");
+        }
+        ChessPiece.PieceType promotion = null;
+        if (uci.length() == 5) {
+            promotion = promotionType(uci.charAt(4));
+            if (promotion == null) {
+                throw new IllegalArgumentException("Bad promotion piece in UCI move '" + uci + "'");
+            }
+        }
+        return new ChessMove(ChessPosition.of(square(uci, 0)), ChessPosition.of(square(uci, 2)), promotion);
+    }
+
+    /**
+     * @param move a legal move for turn on board
+     * @return the move in Standard Algebraic Notation, with a check or checkmate suffix; board is left as it was
+     */
+    static String san(ChessBoard board, ChessGame.TeamColor turn, int move) {
+        String san = sanWithoutSuffix(board, legalMoves(board, turn), move);
+        board.makeMove(move);
+        AttackMap replies = AttackMap.of(board, turn.other());
+        String suffix = "";
+        if (replies.inCheck()) {
+            suffix = legalMoves(board, turn.other()).isEmpty() ? "#" : "+";
+        }
+        board.unmakeMove();
+        return san + suffix;
+    }
+
+    /**
+     * Finds the legal move for turn that san names. Check and annotation suffixes are ignored, and castling may be
+     * written with zeros.
+     *
+     * @throws IllegalArgumentException if san names no legal move
+     */
+    static int parseSan(ChessBoard board, ChessGame.TeamColor turn, String san) {
+        String wanted = san.strip().replaceAll("[+#!?]+$", "").replace('0', 'O');
+        MoveList legal = legalMoves(board, turn);
+        for (int i = 0; i < legal.size(); i++) {
+            if (sanWithoutSuffix(board, legal, legal.get(i)).equals(wanted)) {
+                return legal.get(i);
+            }
+        }
+        throw new IllegalArgumentException("No legal move '" + san + "' for " + turn);
+    }
+
+    private static String sanWithoutSuffix(ChessBoard board, MoveList legal, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.kind(move) == Move.CASTLE) {
+            return to > from ? "O-O" : "O-O-O";
+        }
+        ChessPiece.PieceType type = board.getPiece(from).getPieceType();
+        boolean capture = board.getPiece(to) != null || Move.kind(move) == Move.EN_PASSANT;
+        StringBuilder san = new StringBuilder(7);
+        if (type == ChessPiece.PieceType.PAWN) {
+            if (capture) {
+                san.append(fileName(from));
+            }
+        } else {
+            san.append(type.abbreviation());
+            appendDisambiguation(san, board, legal, type, from, to);
+        }
+        if (capture) {
+            san.append('x');
+        }
+        san.append(squareName(to));
+        if (Move.promotion(move) != null) {
+            san.append('=').append(Move.promotion(move).abbreviation());
+        }
+        return san.toString();
+    }
+
+    /**
+     * When another piece of the same type can also move to the end square, adds the start file if that tells them
+     * apart, else the start rank if that does, else both.
+     */
+    private static void appendDisambiguation(StringBuilder san, ChessBoard board, MoveList legal,
+                                             ChessPiece.PieceType type, int from, int to) {
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < legal.size(); i++) {
+            int other = Move.from(legal.get(i));
+            if (Move.to(legal.get(i)) == to && other != from && board.getPiece(other).getPieceType() == type) {
+                ambiguous = true;
+                sameFile |= (other & 7) == (from & 7);
+                sameRank |= other >>> 3 == from >>> 3;
+            }
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            san.append(fileName(from));
+        } else if (!sameRank) {
+            san.append(BitBoard.row(from));
+        } else {
+            san.append(squareName(from));
+        }
+    }
+
+    private static MoveList legalMoves(ChessBoard board, ChessGame.TeamColor turn) {
+        MoveList moves = new MoveList();
+        MoveGenerator.teamMoves(board, turn, moves);
+        moves.retainLegal(AttackMap.of(board, turn));
+        return moves;
+    }
+
+    private static char fileName(int square) {
+        return (char) ('a' + (square & 7));
+    }
+
+    private static String squareName(int square) {
+        return String.valueOf(fileName(square)) + BitBoard.row(square);
+    }
+
+    private static int square(String uci, int index) {
+        char file = uci.charAt(index);
+        char rank = uci.charAt(index + 1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new IllegalArgumentException("Bad square in UCI move '" + uci + "'");
+        }
+        return BitBoard.square(rank - '0', file - 'a' + 1);
+    }
+
+    private static ChessPiece.PieceType promotionType(char letter) {
+        return switch (letter) {
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package chess;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft"), using the same generator and legality test
+ * as {@link ChessGame#validMoves} and walking the tree with {@link ChessBoard#makeMove}/{@link ChessBoard#unmakeMove}.
+ * The counts for the standard positions are published, so any difference from them is a move generation bug, and the
+ * time taken measures how fast move generation is.
+ * <p>
+ * Run with no arguments to check every standard position to depth 5, or with a FEN position and a depth to count that
+ * position: {@code java chess.Perft ["<fen>" [depth]]}, or {@code java chess.Perft <depth>}.
+ */
+public final class Perft {
+
+    /**
+     * A position with its known node counts; nodes[0] is the count at depth 1.
+     */
+    public record Position(String name, String fen, long... nodes) {
+    }
+
+    public static final List<Position> STANDARD = List.of(
+            new Position("initial", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    20, 400, 8_902, 197_281, 4_865_609, 119_060_324),
+            new Position("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2_039, 97_862, 4_085_603, 193_690_690),
+            new Position("en passant pins", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2_812, 43_238, 674_624, 11_030_083),
+            new Position("promotions", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6, 264, 9_467, 422_333, 15_833_292),
+            new Position("castling into check", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44, 1_486, 62_379, 2_103_487, 89_941_194),
+            new Position("middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2_079, 89_890, 3_894_594, 164_075_551)
+    );
+
+    private Perft() {
+    }
+
+    /**
+     * @return the number of move sequences of exactly depth plies from the game's position; the game is left as it was
+     */
+    public static long perft(ChessGame game, int depth) {
+        MoveList[] lists = new MoveList[Math.max(depth, 1)];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+        return perft(game.getBoard(), game.getTeamTurn(), depth, lists);
+    }
+
+    private static long perft(ChessBoard board, ChessGame.TeamColor turn, int depth, MoveList[] lists) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = lists[depth - 1];
+        moves.clear();
+        MoveGenerator.teamMoves(board, turn, moves);
+        moves.retainLegal(AttackMap.of(board, turn));
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += perft(board, turn.other(), depth - 1, lists);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Prints the node count, time and nodes per second at each depth from 1 to depth, marking any count that differs
+     * from the position's known counts.
+     *
+     * @return whether every known count matched
+     */
+    public static boolean report(Position position, int depth, PrintStream out) {
+        ChessGame game = ChessGame.fromFen(position.fen());
+        boolean matched = true;
+        out.println(position.name() + ": " + position.fen());
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long nodes = perft(game, d);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            String check = "";
+            if (d <= position.nodes().length) {
+                long expected = position.nodes()[d - 1];
+                matched &= nodes == expected;
+                check = nodes == expected ? "  ok" : String.format("  MISMATCH, expected %,d", expected);
+            }
+            out.printf("  depth %d: %,15d nodes %9.3f s %,13.0f nodes/s%s%n", d, nodes, seconds,
+                    nodes / Math.max(seconds, 1e-9), check);
+        }
+        return matched;
+    }
+
+    public static void main(String[] args) {
+        boolean matched = true;
+        if (args.length == 0 || args[0].matches("\\d+")) {
+            int depth = args.length == 0 ? 5 : Integer.parseInt(args[0]);
+            for (var position : STANDARD) {
+                matched &= report(position, depth, System.out);
+            }
+        } else {
+            int depth = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+            report(new Position("custom", args[0]), depth, System.out);
+        }
+        if (!matched) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * The random 64-bit keys XORed together to form a position's Zobrist key: one per piece type, color and square, one
+ * per combination of castling rights, one per en passant column, and one for black to move.
+ * <p>
+ * The keys come from a fixed seed, so a position has the same key in every process and can be stored or compared
+ * across servers.
+ */
+final class Zobrist {
+
+    static final long BLACK_TO_MOVE;
+    private static final long[][] PIECES = new long[12][BitBoard.SQUARES];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(240);
+        for (var squares : PIECES) {
+            for (int square = 0; square < squares.length; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        long[] rights = {random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()};
+        for (int combination = 0; combination < CASTLING.length; combination++) {
+            for (int right = 0; right < rights.length; right++) {
+                if ((combination & 1 << right) != 0) {
+                    CASTLING[combination] ^= rights[right];
+                }
+            }
+        }
+        for (int column = 0; column < EN_PASSANT.length; column++) {
+            EN_PASSANT[column] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(ChessPiece piece, int square) {
+        return PIECES[BitBoard.index(piece.getTeamColor(), piece.getPieceType())][square];
+    }
+
+    /**
+     * @param rights a set of {@link ChessBoard} castling right bits
+     */
+    static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param column the 0-indexed column of a pawn that can be captured en passant
+     */
+    static long enPassant(int column) {
+        return EN_PASSANT[column];
+    }
+}
@@ -0,0 +1,24 @@
+package model;
+
+import java.util.List;
+
+/**
+ * One page of the game list.
+ *
+ * @param games the games on this page, in order of ID
+ * @param next  the {@link GameQuery#after} value for the next page, or null if this is the last page
+ */
+public record GamePage(List<GameSummary> games, Integer next) {
+
+    /**
+     * Makes a page from the games found for it, when up to one more game than the page holds was looked for so as to
+     * know whether there is another page.
+     */
+    public static GamePage of(List<GameSummary> found, int limit) {
+        if (found.size() <= limit) {
+            return new GamePage(found, null);
+        }
+        List<GameSummary> games = found.subList(0, limit);
+        return new GamePage(List.copyOf(games), games.getLast().gameID());
+    }
+}
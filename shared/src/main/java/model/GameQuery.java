@@ -0,0 +1,58 @@
+package model;
+
+import chess.ChessGame;
+
+/**
+ * Which games to list, and which page of them. Pages are ordered by game ID and start after the last ID of the page
+ * before, so fetching any page costs the same however many games there are.
+ *
+ * @param after      list only games with a higher ID than this; 0 for the first page
+ * @param limit      the most games to list, at most {@link #MAX_LIMIT}
+ * @param openSeat   list only games with a seat nobody has taken
+ * @param player     if not null, list only games this user plays in
+ * @param progress   if not null, list only games in progress or only finished games
+ * @param namePrefix if not null, list only games whose names start with this, ignoring case as MySQL does
+ */
+public record GameQuery(int after, int limit, boolean openSeat, String player, Progress progress, String namePrefix) {
+
+    public static final int MAX_LIMIT = 100;
+
+    public enum Progress {
+        IN_PROGRESS, FINISHED
+    }
+
+    public GameQuery {
+        limit = Math.clamp(limit, 1, MAX_LIMIT);
+    }
+
+    /**
+     * @return the first page of all games
+     */
+    public static GameQuery all() {
+        return new GameQuery(0, MAX_LIMIT, false, null, null, null);
+    }
+
+    /**
+     * @return the same query, for the page after the given game
+     */
+    public GameQuery after(int gameID) {
+        return new GameQuery(gameID, limit, openSeat, player, progress, namePrefix);
+    }
+
+    /**
+     * Tells whether a game passes the filters, ignoring which page it is on.
+     */
+    public boolean matches(GameSummary game) {
+        return (!openSeat || game.whiteUsername() == null || game.blackUsername() == null)
+                && (player == null || player.equals(game.whiteUsername()) || player.equals(game.blackUsername()))
+                && (progress == null || progress == (isFinished(game.status()) ? Progress.FINISHED
+                                                                              : Progress.IN_PROGRESS))
+                && (namePrefix == null
+                    || game.gameName().regionMatches(true, 0, namePrefix, 0, namePrefix.length()));
+    }
+
+    public static boolean isFinished(ChessGame.GameStatus status) {
+        return status == ChessGame.GameStatus.WHITE_WON || status == ChessGame.GameStatus.BLACK_WON
+                || status == ChessGame.GameStatus.STALEMATE;
+    }
+}
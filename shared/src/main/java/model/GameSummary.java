@@ -0,0 +1,15 @@
+package model;
+
+import chess.ChessGame;
+
+/**
+ * What the game list shows about a game: everything but the board, which clients only load once they join the game.
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName,
+                          ChessGame.GameStatus status) {
+
+    public static GameSummary of(GameData game) {
+        return new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.game() == null ? null : game.game().getStatus());
+    }
+}
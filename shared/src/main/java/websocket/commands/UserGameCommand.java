@@ -6,12 +6,21 @@ import chess.ChessMove;
  * <p>
  * Note: You can add to this class, but you should not alter the existing
  * methods.
+ *
+ * @param moveUpdates with CONNECT, true if the client applies MOVE_MADE messages to its own copy of the game, so it is
+ *                    sent just the move after each move instead of the whole game
  */
-public record UserGameCommand(CommandType commandType, String authToken, Integer gameID, ChessMove move) {
+public record UserGameCommand(CommandType commandType, String authToken, Integer gameID, ChessMove move,
+                              Boolean moveUpdates) {
+    public UserGameCommand(CommandType commandType, String authToken, Integer gameID, ChessMove move) {
+        this(commandType, authToken, gameID, move, null);
+    }
+
     public enum CommandType {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        RELOAD
     }
 }
@@ -1,16 +1,28 @@
 package websocket.messages;
 
+import chess.ChessGame;
+import chess.ChessMove;
+
 /**
  * Represents a Message the server can send through a WebSocket
  * <p>
  * Note: You can add to this class, but you should not alter the existing
  * methods.
+ *
+ * @param move         for MOVE_MADE, the move just made
+ * @param sequence     for MOVE_MADE, the game's {@link ChessGame#getPlyCount() ply count} after the move
+ * @param positionHash for MOVE_MADE, the {@link #positionHash} of the game after the move
  */
-public record ServerMessage(ServerMessageType serverMessageType, String message, String errorMessage, String game) {
+public record ServerMessage(ServerMessageType serverMessageType, String message, String errorMessage, String game,
+                            ChessMove move, Integer sequence, String positionHash) {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        MOVE_MADE
+    }
+    public ServerMessage(ServerMessageType serverMessageType, String message, String errorMessage, String game) {
+        this(serverMessageType, message, errorMessage, game, null, null, null);
     }
     public static ServerMessage error(String errorMessage){
         return new ServerMessage(ServerMessageType.ERROR, null, errorMessage, null);
@@ -21,4 +33,22 @@ public record ServerMessage(ServerMessageType serverMessageType, String message,
     public static ServerMessage load(String game){
         return new ServerMessage(ServerMessageType.LOAD_GAME, null, null, game);
     }
+
+    /**
+     * A move for clients that keep their own copy of the game to apply, sent instead of the whole game. A client whose
+     * copy doesn't reach the same sequence and position hash by making the move should ask for the whole game again.
+     *
+     * @param game the game after move was made in it
+     */
+    public static ServerMessage moveMade(ChessGame game, ChessMove move){
+        return new ServerMessage(ServerMessageType.MOVE_MADE, null, null, null, move, game.getPlyCount(),
+                positionHash(game));
+    }
+
+    /**
+     * @return the game's Zobrist key in hexadecimal, since JSON numbers can't hold every 64-bit key exactly
+     */
+    public static String positionHash(ChessGame game){
+        return Long.toHexString(game.getZobristKey());
+    }
 }
@@ -0,0 +1,79 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttackMapTest {
+
+    /**
+     * Legality by brute force: play the move and look for any attack on the king, plus the castling rules.
+     */
+    private static boolean referenceIsLegal(ChessBoard board, ChessMove move) {
+        ChessGame.TeamColor color = board.getPiece(move.getStartPosition()).getTeamColor();
+        ChessGame.TeamColor enemy = color.other();
+        int columnChange = move.getEndPosition().getColumn() - move.getStartPosition().getColumn();
+        boolean castle = board.getPiece(move.getStartPosition()).getPieceType() == ChessPiece.PieceType.KING
+                && Math.abs(columnChange) == 2;
+        if (castle && (board.isAttacked(move.getStartPosition(), enemy)
+                || board.isAttacked(move.getStartPosition().offset(0, Integer.signum(columnChange)), enemy))) {
+            return false;
+        }
+        board.makeMove(move);
+        boolean legal = !board.isAttacked(board.getKingPosition(color), enemy);
+        board.unmakeMove();
+        return legal;
+    }
+
+    @Test
+    void matchesPlayingEachMove() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 40; gameNumber++) {
+            ChessGame game = new ChessGame();
+            ChessBoard board = game.getBoard();
+            for (int ply = 0; ply < 150; ply++) {
+                AttackMap attacks = AttackMap.of(board, game.getTeamTurn());
+                List<ChessMove> legal = new ArrayList<>();
+                for (var move : board.getTeamMoves(game.getTeamTurn())) {
+                    boolean expected = referenceIsLegal(board, move);
+                    assertEquals(expected, attacks.isLegal(move), move + " on\n" + board);
+                    if (expected) {
+                        legal.add(move);
+                    }
+                }
+                if (legal.isEmpty()) {
+                    break;
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+
+    @Test
+    void pinsAndChecks() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |r| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | |N| | | | | |
+                | | | | |B| | | |
+                |q| | | |K| | | |
+                """);
+        AttackMap attacks = AttackMap.of(board, ChessGame.TeamColor.WHITE);
+        assertTrue(attacks.inCheck());
+        assertEquals(1, Long.bitCount(attacks.checkers()));
+        assertEquals(BitBoard.bit(BitBoard.square(2, 5)), attacks.pinned());
+        // the knight can block the queen's check on d1, but the bishop is pinned to the king by the rook
+        assertTrue(attacks.isLegal(new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 4))));
+        assertFalse(attacks.isLegal(new ChessMove(new ChessPosition(2, 5), new ChessPosition(1, 4))));
+    }
+}
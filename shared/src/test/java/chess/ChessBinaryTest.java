@@ -0,0 +1,102 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChessBinaryTest {
+
+    @Test
+    void standardPositions() {
+        assertEquals(29, ChessBinary.toBytes(new ChessGame()).length);
+        for (var position : Perft.STANDARD) {
+            ChessGame game = ChessGame.fromFen(position.fen());
+            assertSameGame(game, ChessBinary.fromBytes(ChessBinary.toBytes(game)));
+        }
+        ChessGame castling = ChessGame.fromFen("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 0 1");
+        castling.setStatus(ChessGame.GameStatus.STALEMATE);
+        assertSameGame(castling, ChessBinary.fromBytes(ChessBinary.toBytes(castling)));
+    }
+
+    @Test
+    void randomGamesShareOneBuffer() throws InvalidMoveException {
+        Random random = new Random(240);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        List<ChessGame> written = new ArrayList<>();
+        for (int gameNumber = 0; gameNumber < 10; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 150; ply++) {
+                ChessBinary.encode(game, buffer);
+                ChessGame snapshot = ChessGame.fromFen(game.toFen());
+                snapshot.setStatus(game.getStatus());
+                written.add(snapshot);
+                List<ChessMove> legal = new ArrayList<>();
+                for (int square = 0; square < 64; square++) {
+                    ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(square));
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                        legal.addAll(game.validMoves(ChessPosition.of(square)));
+                    }
+                }
+                if (legal.isEmpty()) {
+                    break;
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+        buffer.flip();
+        for (ChessGame game : written) {
+            assertSameGame(game, ChessBinary.decode(buffer));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void malformed() {
+        byte[] bytes = ChessBinary.toBytes(new ChessGame());
+        assertThrows(IllegalArgumentException.class, () -> ChessBinary.fromBytes(Arrays.copyOf(bytes, 20)));
+        assertThrows(IllegalArgumentException.class, () -> ChessBinary.fromBytes(Arrays.copyOf(bytes, 30)));
+        byte[] badVersion = bytes.clone();
+        badVersion[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> ChessBinary.fromBytes(badVersion));
+        byte[] badCastling = ChessBinary.toBytes(ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1"));
+        badCastling[1] |= 1 << 3;
+        assertThrows(IllegalArgumentException.class, () -> ChessBinary.fromBytes(badCastling));
+        byte[] badEnPassant = bytes.clone();
+        badEnPassant[2] = (byte) (badEnPassant[2] & 0xF0 | 4);
+        assertThrows(IllegalArgumentException.class, () -> ChessBinary.fromBytes(badEnPassant));
+    }
+
+    @Test
+    void moveHistory() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen(Perft.STANDARD.get(1).fen());
+        for (String san : new String[]{"O-O", "b3", "Bxa6", "O-O", "Qxf6"}) {
+            game.makeMove(game.parseSan(san));
+        }
+        byte[] bytes = ChessBinary.toBytes(game);
+        assert bytes.length <= ChessBinary.maxSize(game);
+        ChessGame read = ChessBinary.fromBytes(bytes);
+        assertSameGame(game, read);
+        assertEquals(game.getMoveHistory(), read.getMoveHistory());
+        assertEquals(game.getSanHistory(), read.getSanHistory());
+        assertEquals(Perft.STANDARD.get(1).fen(), read.getStartFen());
+        assertArrayEquals(bytes, ChessBinary.toBytes(read));
+        ChessGame fromJson = ChessJson.GSON.fromJson(ChessJson.WITH_HISTORY.toJson(read), ChessGame.class);
+        assertArrayEquals(bytes, ChessBinary.toBytes(fromJson));
+    }
+
+    private static void assertSameGame(ChessGame expected, ChessGame actual) {
+        assertEquals(expected.toFen(), actual.toFen());
+        assertEquals(expected.getZobristKey(), actual.getZobristKey());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getBoard(), actual.getBoard());
+    }
+}
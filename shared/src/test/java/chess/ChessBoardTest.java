@@ -0,0 +1,209 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChessBoardTest {
+
+    /**
+     * Every piece on the board, by identity, with its flags, so restoring a copy of the board isn't enough to pass.
+     */
+    private record Snapshot(ChessPiece[] pieces, boolean[] moved, int[] enPassant) {
+        static Snapshot of(ChessBoard board) {
+            var snapshot = new Snapshot(new ChessPiece[64], new boolean[64], new int[64]);
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = board.getPiece(square);
+                snapshot.pieces[square] = piece;
+                snapshot.moved[square] = piece != null && piece.hasMoved();
+                snapshot.enPassant[square] = piece == null ? 0 : piece.getEnPassant();
+            }
+            return snapshot;
+        }
+
+        void assertMatches(ChessBoard board, ChessMove move) {
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = board.getPiece(square);
+                String where = "square " + square + " after unmaking " + move;
+                assertSame(pieces[square], piece, where);
+                assertEquals(moved[square], piece != null && piece.hasMoved(), where);
+                assertEquals(enPassant[square], piece == null ? 0 : piece.getEnPassant(), where);
+            }
+        }
+    }
+
+    private static List<ChessMove> legalMoves(ChessGame game) {
+        List<ChessMove> legal = new ArrayList<>();
+        for (var move : game.getBoard().getTeamMoves(game.getTeamTurn())) {
+            if (game.validMoves(move.getStartPosition()).contains(move)) {
+                legal.add(move);
+            }
+        }
+        return legal;
+    }
+
+    @Test
+    void unmakeRestoresEveryMove() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 10; gameNumber++) {
+            ChessGame game = new ChessGame();
+            ChessBoard board = game.getBoard();
+            for (int ply = 0; ply < 120; ply++) {
+                List<ChessMove> legal = legalMoves(game);
+                if (legal.isEmpty()) {
+                    break;
+                }
+                for (var move : legal) {
+                    Snapshot before = Snapshot.of(board);
+                    int hash = board.hashCode();
+                    board.makeMove(move);
+                    board.unmakeMove();
+                    before.assertMatches(board, move);
+                    assertEquals(hash, board.hashCode());
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+
+    @Test
+    void unmakeCastleAndEnPassant() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                | | | |p| | | | |
+                | | | | | | | | |
+                | | | | |P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | |K| | |R|
+                """);
+        Snapshot start = Snapshot.of(board);
+        ChessMove castle = new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7));
+        ChessMove doublePush = new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4));
+        ChessMove enPassant = new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 4));
+
+        board.makeMove(castle);
+        assertEquals(ChessPiece.PieceType.ROOK, board.getPiece(new ChessPosition(1, 6)).getPieceType());
+        board.makeMove(doublePush);
+        assertEquals(-1, board.getPiece(new ChessPosition(5, 5)).getEnPassant());
+        Snapshot beforeCapture = Snapshot.of(board);
+        board.makeMove(enPassant);
+        assertNull(board.getPiece(new ChessPosition(5, 4)));
+        assertEquals(0, board.getPiece(new ChessPosition(6, 4)).getEnPassant());
+
+        board.unmakeMove();
+        beforeCapture.assertMatches(board, enPassant);
+        board.unmakeMove();
+        board.unmakeMove();
+        start.assertMatches(board, castle);
+        assertThrows(IllegalStateException.class, board::unmakeMove);
+    }
+
+    @Test
+    void gameMovesCannotBeUnmade() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(ChessMove.fromUci("e2e4"));
+        game.makeMove(ChessMove.fromUci("e7e5"));
+        assertThrows(IllegalStateException.class, () -> game.getBoard().unmakeMove());
+        assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2", game.toFen());
+    }
+
+    @Test
+    void kingPositionFollowsTheKing() {
+        ChessBoard board = ChessBoard.newGameBoard();
+        assertSame(ChessPosition.of(1, 5), board.getKingPosition(ChessGame.TeamColor.WHITE));
+        assertSame(ChessPosition.of(8, 5), board.getKingPosition(ChessGame.TeamColor.BLACK));
+        board.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5)));
+        board.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5)));
+        assertEquals(new ChessPosition(2, 5), board.getKingPosition(ChessGame.TeamColor.WHITE));
+        board.unmakeMove();
+        assertEquals(new ChessPosition(1, 5), board.getKingPosition(ChessGame.TeamColor.WHITE));
+        board.removePiece(new ChessPosition(8, 5));
+        assertThrows(RuntimeException.class, () -> board.getKingPosition(ChessGame.TeamColor.BLACK));
+        board.addPiece(new ChessPosition(6, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        assertEquals(new ChessPosition(6, 3), board.getKingPosition(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void zobristKeyMatchesRecomputedKey() throws InvalidMoveException {
+        Gson gson = new Gson();
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 10; gameNumber++) {
+            ChessGame game = new ChessGame();
+            ChessBoard board = game.getBoard();
+            for (int ply = 0; ply < 120; ply++) {
+                List<ChessMove> legal = legalMoves(game);
+                if (legal.isEmpty()) {
+                    break;
+                }
+                long key = board.getZobristKey();
+                // deserializing rebuilds the key from scratch rather than move by move
+                assertEquals(key, gson.fromJson(gson.toJson(board), ChessBoard.class).getZobristKey(), board.toString());
+                for (var move : legal) {
+                    board.makeMove(move);
+                    assertNotEquals(key, board.getZobristKey(), move.toString());
+                    board.unmakeMove();
+                    assertEquals(key, board.getZobristKey(), move.toString());
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+
+    @Test
+    void zobristKeyCoversTurnCastlingAndEnPassant() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long start = game.getZobristKey();
+        ChessPosition g1 = new ChessPosition(1, 7);
+        ChessPosition f3 = new ChessPosition(3, 6);
+        ChessPosition g8 = new ChessPosition(8, 7);
+        ChessPosition f6 = new ChessPosition(6, 6);
+        game.makeMove(new ChessMove(g1, f3));
+        assertNotEquals(start, game.getZobristKey());
+        assertNotEquals(start, game.getBoard().getZobristKey() ^ Zobrist.BLACK_TO_MOVE, "side to move");
+        game.makeMove(new ChessMove(g8, f6));
+        game.makeMove(new ChessMove(f3, g1));
+        game.makeMove(new ChessMove(f6, g8));
+        assertEquals(start, game.getZobristKey(), "knights back home");
+        assertEquals(new ChessGame().hashCode(), game.hashCode());
+
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | |p| | | | |
+                | | | | | | | | |
+                | | | | |P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | |K| | |R|
+                """);
+        assertEquals(ChessBoard.WHITE_KING_SIDE | ChessBoard.WHITE_QUEEN_SIDE, board.castlingRights());
+        long noEnPassant = board.getZobristKey();
+        board.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4)));
+        assertEquals(3, board.enPassantColumn());
+        board.unmakeMove();
+        board.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(6, 4)));
+        board.makeMove(new ChessMove(new ChessPosition(6, 4), new ChessPosition(5, 4)));
+        assertEquals(-1, board.enPassantColumn());
+        long slowPush = board.getZobristKey();
+        assertNotEquals(noEnPassant, slowPush);
+
+        board.makeMove(new ChessMove(new ChessPosition(1, 8), new ChessPosition(2, 8)));
+        board.makeMove(new ChessMove(new ChessPosition(2, 8), new ChessPosition(1, 8)));
+        assertEquals(ChessBoard.WHITE_QUEEN_SIDE, board.castlingRights());
+        long withRights = Zobrist.castling(ChessBoard.WHITE_KING_SIDE | ChessBoard.WHITE_QUEEN_SIDE);
+        assertEquals(slowPush ^ withRights ^ Zobrist.castling(ChessBoard.WHITE_QUEEN_SIDE), board.getZobristKey(),
+                "only the lost castling right changed");
+    }
+}
@@ -0,0 +1,77 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChessJsonTest {
+
+    private static final Gson REFLECTIVE = new Gson();
+
+    @Test
+    void randomGamesRoundTrip() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 10; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 120; ply++) {
+                String json = ChessJson.GSON.toJson(game);
+                ChessGame read = ChessJson.GSON.fromJson(json, ChessGame.class);
+                assertSameGame(game, read);
+                assertTrue(read.getMoveHistory().isEmpty());
+                ChessGame withHistory = ChessJson.GSON.fromJson(ChessJson.WITH_HISTORY.toJson(game), ChessGame.class);
+                assertSameGame(game, withHistory);
+                assertEquals(game.getMoveHistory(), withHistory.getMoveHistory());
+                assertEquals(game.getStartFen(), withHistory.getStartFen());
+                // either side of a connection may still be using plain Gson
+                assertSameGame(game, REFLECTIVE.fromJson(json, ChessGame.class));
+                assertSameGame(game, ChessJson.GSON.fromJson(REFLECTIVE.toJson(game), ChessGame.class));
+
+                List<ChessMove> legal = new ArrayList<>();
+                for (int square = 0; square < 64; square++) {
+                    ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(square));
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                        legal.addAll(game.validMoves(ChessPosition.of(square)));
+                    }
+                }
+                if (legal.isEmpty()) {
+                    break;
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+
+    @Test
+    void movesAndPositions() {
+        ChessMove move = new ChessMove(ChessPosition.of(7, 2), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN);
+        String json = ChessJson.GSON.toJson(move);
+        assertEquals(REFLECTIVE.toJson(move), json);
+        ChessMove read = ChessJson.GSON.fromJson(json, ChessMove.class);
+        assertEquals(move, read);
+        assertSame(ChessPosition.of(7, 2), read.getStartPosition());
+        assertEquals(move, ChessJson.GSON.fromJson(REFLECTIVE.toJson(move), ChessMove.class));
+
+        ChessMove quiet = new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5));
+        assertNull(ChessJson.GSON.fromJson(ChessJson.GSON.toJson(quiet), ChessMove.class).getPromotionPiece());
+
+        ChessPosition offBoard = ChessJson.GSON.fromJson("{\"col\":9,\"row\":0}", ChessPosition.class);
+        assertEquals(0, offBoard.getRow());
+        assertEquals(9, offBoard.getColumn());
+        assertNull(ChessJson.GSON.fromJson("null", ChessGame.class));
+    }
+
+    private static void assertSameGame(ChessGame expected, ChessGame actual) {
+        assertEquals(expected.toFen(), actual.toFen());
+        assertEquals(expected.getZobristKey(), actual.getZobristKey());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getBoard(), actual.getBoard());
+    }
+}
@@ -0,0 +1,41 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ChessPositionTest {
+
+    @Test
+    void canonicalPositions() {
+        Gson gson = new Gson();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                assertSame(position, ChessPosition.of(row, col));
+                assertSame(position, ChessPosition.of(position.square()));
+                assertSame(position, ChessPosition.of(1, 1).offset(row - 1, col - 1));
+                ChessPosition constructed = new ChessPosition(row, col);
+                assertEquals(position, constructed);
+                assertEquals(position.hashCode(), constructed.hashCode());
+                // Gson builds positions without running the constructor, so nothing may depend on it
+                ChessPosition deserialized = gson.fromJson(gson.toJson(position), ChessPosition.class);
+                assertEquals(position.hashCode(), deserialized.hashCode());
+                assertEquals(position.square(), deserialized.square());
+            }
+        }
+    }
+
+    @Test
+    void offBoard() {
+        assertSame(ChessPosition.OFF_BOARD, ChessPosition.of(0, 4));
+        // offsets keep their coordinates off the board, so they can be offset back onto it
+        ChessPosition beyond = ChessPosition.of(8, 1).offset(1, 0);
+        assertEquals(new ChessPosition(9, 1), beyond);
+        assertSame(ChessPosition.of(7, 1), beyond.offset(-2, 0));
+        assertSame(ChessPosition.of(1, 1), ChessPosition.OFF_BOARD.offset(1, 1));
+        assert ChessBoard.notOnBoard(ChessPosition.OFF_BOARD);
+    }
+}
@@ -0,0 +1,78 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FenTest {
+
+    @Test
+    void standardPositionsRoundTrip() {
+        for (var position : Perft.STANDARD) {
+            assertEquals(position.fen(), ChessGame.fromFen(position.fen()).toFen());
+        }
+        assertEquals(Perft.STANDARD.getFirst().fen(), new ChessGame().toFen());
+    }
+
+    @Test
+    void castlingAndEnPassant() {
+        ChessGame game = ChessGame.fromFen("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 0 1");
+        ChessBoard board = game.getBoard();
+        assertEquals(ChessBoard.WHITE_KING_SIDE | ChessBoard.BLACK_QUEEN_SIDE, board.castlingRights());
+        assertEquals(3, board.enPassantColumn());
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        assertEquals(ChessBoard.newGameBoard(), ChessGame.fromFen(Perft.STANDARD.getFirst().fen()).getBoard());
+        assertEquals(ChessGame.GameStatus.BLACK_IN_CHECK, ChessGame.fromFen("4k3/8/8/8/8/8/8/4R1K1 b - -").getStatus());
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w Q - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - x 1"));
+        // an en passant square needs the pawn that just moved two squares past it
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - d6 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d3 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("4k3/8/8/3PP3/8/8/8/4K3 w - d6 0 1"));
+    }
+
+    @Test
+    void movesKeepCounters() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5)));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", game.toFen());
+        game.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6)));
+        game.makeMove(new ChessMove(ChessPosition.of(1, 5), ChessPosition.of(2, 5)));
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", game.toFen());
+        assertEquals(3, game.getPlyCount());
+        assertEquals(18, ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 10").getPlyCount());
+    }
+
+    @Test
+    void randomGamesRoundTrip() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 20; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 150; ply++) {
+                ChessGame copy = ChessGame.fromFen(game.toFen());
+                assertEquals(game, copy);
+                assertEquals(game.getZobristKey(), copy.getZobristKey(), game.toFen());
+                assertEquals(game.toFen(), copy.toFen());
+                List<ChessMove> legal = new ArrayList<>();
+                List<ChessMove> copyLegal = new ArrayList<>();
+                for (int square = 0; square < 64; square++) {
+                    legal.addAll(game.validMoves(ChessPosition.of(square)));
+                    copyLegal.addAll(copy.validMoves(ChessPosition.of(square)));
+                }
+                assertEquals(legal, copyLegal, game.toFen());
+                legal.removeIf(move -> game.getBoard().getPiece(move.getStartPosition()).getTeamColor()
+                        != game.getTeamTurn());
+                if (legal.isEmpty()) {
+                    break;
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+}
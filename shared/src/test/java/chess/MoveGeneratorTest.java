@@ -0,0 +1,108 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoveGeneratorTest {
+
+    private static void assertSameMoves(ChessBoard board) {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece == null) {
+                    assert MoveGenerator.pieceMoves(board, position).isEmpty();
+                    continue;
+                }
+                assertEquals(new HashSet<>(piece.pieceMoves(board, position)),
+                        new HashSet<>(MoveGenerator.pieceMoves(board, position)),
+                        "Moves differ for " + piece + " at " + position + " on\n" + board);
+                assertPackedRoundTrip(board, BitBoard.square(position));
+            }
+        }
+    }
+
+    /**
+     * The generator's packed moves must match what the board infers from the equivalent ChessMove, since that is how
+     * moves arriving through the API are looked up among the generated ones.
+     */
+    private static void assertPackedRoundTrip(ChessBoard board, int square) {
+        MoveList moves = new MoveList();
+        MoveGenerator.pieceMoves(board, square, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            assertEquals(move, board.encode(Move.toChessMove(move)), Move.toChessMove(move) + " on\n" + board);
+        }
+    }
+
+    @Test
+    void startingPosition() {
+        ChessBoard board = ChessBoard.newGameBoard();
+        assertSameMoves(board);
+        assertEquals(20, MoveGenerator.teamMoves(board, ChessGame.TeamColor.WHITE).size());
+    }
+
+    @Test
+    void randomGames() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 40; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 150; ply++) {
+                assertSameMoves(game.getBoard());
+                List<ChessMove> legal = new ArrayList<>();
+                for (int row = 1; row <= 8; row++) {
+                    for (int col = 1; col <= 8; col++) {
+                        ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                        if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                            legal.addAll(game.validMoves(new ChessPosition(row, col)));
+                        }
+                    }
+                }
+                if (legal.isEmpty()) {
+                    break;
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+
+    @Test
+    void castlingAndPromotion() {
+        assertSameMoves(TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                |P| | | | | | |p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |p| | | | | | |P|
+                |R| | | |K| |N|R|
+                """));
+    }
+
+    @Test
+    void enPassant() throws InvalidMoveException {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | |p| | | | |
+                | | | | | | | | |
+                | | |P| |P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        ChessGame game = new ChessGame(ChessGame.TeamColor.BLACK, board);
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4)));
+        assertSameMoves(board);
+        assertEquals(2, game.validMoves(new ChessPosition(5, 3)).size());
+        assertEquals(2, game.validMoves(new ChessPosition(5, 5)).size());
+    }
+}
@@ -0,0 +1,86 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NotationTest {
+
+    @Test
+    void san() throws InvalidMoveException {
+        assertSan("e4", Perft.STANDARD.getFirst().fen(), "e2e4");
+        assertSan("Nf3", Perft.STANDARD.getFirst().fen(), "g1f3");
+        String kiwipete = Perft.STANDARD.get(1).fen();
+        assertSan("O-O", kiwipete, "e1g1");
+        assertSan("O-O-O", kiwipete, "e1c1");
+        assertSan("Nxf7", kiwipete, "e5f7");
+        assertSan("dxe6", kiwipete, "d5e6");
+        assertSan("exd6", "4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6");
+        assertSan("Rad1", "1k6/8/8/8/8/8/4K3/R6R w - - 0 1", "a1d1");
+        assertSan("Rhd1", "1k6/8/8/8/8/8/4K3/R6R w - - 0 1", "h1d1");
+        assertSan("R1a3", "7k/8/8/R7/8/8/4K3/R7 w - - 0 1", "a1a3");
+        assertSan("Qa1b2", "8/7k/8/8/8/Q7/4K3/Q1Q5 w - - 0 1", "a1b2");
+        assertSan("Qcb2", "8/7k/8/8/8/Q7/4K3/Q1Q5 w - - 0 1", "c1b2");
+        assertSan("a8=Q+", "7k/P7/8/8/8/8/8/K7 w - - 0 1", "a7a8q");
+        assertSan("a8=N", "7k/P7/8/8/8/8/8/K7 w - - 0 1", "a7a8n");
+        assertThrows(InvalidMoveException.class, () -> new ChessGame().toSan(ChessMove.fromUci("e2e5")));
+    }
+
+    @Test
+    void parseEveryLegalMove() throws InvalidMoveException {
+        for (var position : Perft.STANDARD) {
+            ChessGame game = ChessGame.fromFen(position.fen());
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(square));
+                if (piece == null || piece.getTeamColor() != game.getTeamTurn()) {
+                    continue;
+                }
+                for (ChessMove move : game.validMoves(ChessPosition.of(square))) {
+                    assertEquals(move, game.parseSan(game.toSan(move)), position.name());
+                    assertEquals(move, ChessMove.fromUci(move.toUci()));
+                    assertEquals(move, ChessMove.fromPacked(move.toPacked()));
+                }
+            }
+        }
+        ChessGame game = new ChessGame();
+        assertThrows(IllegalArgumentException.class, () -> game.parseSan("Ke2"));
+        assertThrows(IllegalArgumentException.class, () -> ChessMove.fromUci("e2e9"));
+        assertThrows(IllegalArgumentException.class, () -> ChessMove.fromUci("e7e8k"));
+        assertEquals(ChessMove.fromUci("e1g1"), ChessGame.fromFen(Perft.STANDARD.get(1).fen()).parseSan("0-0"));
+    }
+
+    @Test
+    void moveHistory() throws InvalidMoveException {
+        List<String> scholarsMate = List.of("e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#");
+        ChessGame game = new ChessGame();
+        List<String> uci = new ArrayList<>();
+        for (String san : scholarsMate) {
+            ChessMove move = game.parseSan(san);
+            uci.add(move.toUci());
+            game.makeMove(move);
+        }
+        assertEquals(ChessGame.GameStatus.WHITE_WON, game.getStatus());
+        assertEquals(scholarsMate, game.getSanHistory());
+        assertEquals(List.of("e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7"), uci);
+        assertEquals(uci, game.getMoveHistory().stream().map(ChessMove::toUci).toList());
+        assertEquals(Perft.STANDARD.getFirst().fen(), game.getStartFen());
+
+        String fen = "r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 3 20";
+        ChessGame castling = ChessGame.fromFen(fen);
+        assertEquals(fen, castling.getStartFen());
+        castling.makeMove(castling.parseSan("O-O-O"));
+        castling.makeMove(castling.parseSan("Ra8+"));
+        assertEquals(List.of("O-O-O", "Ra8+"), castling.getSanHistory());
+        assertEquals(fen, castling.getStartFen());
+    }
+
+    private static void assertSan(String san, String fen, String uci) throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen(fen);
+        assertEquals(san, game.toSan(ChessMove.fromUci(uci)));
+        assertEquals(ChessMove.fromUci(uci), game.parseSan(san));
+    }
+}
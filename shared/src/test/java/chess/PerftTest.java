@@ -0,0 +1,31 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the known perft counts of the standard positions. By default only depths up to a few hundred thousand nodes
+ * run; pass -Dperft.full=true to check every known depth (a minute or two).
+ */
+class PerftTest {
+
+    private static final long QUICK_NODE_LIMIT = 200_000;
+
+    @Test
+    void standardPositions() {
+        boolean full = Boolean.getBoolean("perft.full");
+        for (var position : Perft.STANDARD) {
+            ChessGame game = ChessGame.fromFen(position.fen());
+            long key = game.getZobristKey();
+            for (int depth = 1; depth <= position.nodes().length; depth++) {
+                long expected = position.nodes()[depth - 1];
+                if (!full && expected > QUICK_NODE_LIMIT) {
+                    break;
+                }
+                assertEquals(expected, Perft.perft(game, depth), position.name() + " at depth " + depth);
+            }
+            assertEquals(key, game.getZobristKey(), position.name() + " was not restored");
+        }
+    }
+}
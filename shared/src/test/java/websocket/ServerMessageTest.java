@@ -0,0 +1,43 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessJson;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ServerMessageTest {
+
+    @Test
+    void originalMessagesKeepTheirShape() {
+        assertEquals("{\"serverMessageType\":\"NOTIFICATION\",\"message\":\"hi\"}",
+                ChessJson.GSON.toJson(ServerMessage.notification("hi")));
+        String connect = "{\"commandType\":\"CONNECT\",\"authToken\":\"token\",\"gameID\":3}";
+        UserGameCommand command = ChessJson.GSON.fromJson(connect, UserGameCommand.class);
+        assertEquals(new UserGameCommand(UserGameCommand.CommandType.CONNECT, "token", 3, null), command);
+        assertNull(command.moveUpdates());
+        assertEquals(connect, ChessJson.GSON.toJson(command));
+    }
+
+    @Test
+    void moveMadeReplaysTheMove() throws InvalidMoveException {
+        ChessGame server = new ChessGame();
+        ChessGame client = new ChessGame();
+        for (String uci : new String[]{"e2e4", "e7e5", "g1f3"}) {
+            ChessMove move = ChessMove.fromUci(uci);
+            server.makeMove(move);
+            String json = ChessJson.GSON.toJson(ServerMessage.moveMade(server, move));
+            ServerMessage received = ChessJson.GSON.fromJson(json, ServerMessage.class);
+
+            assertEquals(ServerMessage.ServerMessageType.MOVE_MADE, received.serverMessageType());
+            assertEquals(client.getPlyCount() + 1, received.sequence());
+            client.makeMove(received.move());
+            assertEquals(ServerMessage.positionHash(client), received.positionHash());
+        }
+    }
+}